@@ -0,0 +1,65 @@
+package org.ciisa.tpw;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de {@link CSVWriter#writeLine(String, Score)} con nombres de tres y cuatro componentes
+ * y comentarios que requieren escape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVWriterBenchmark {
+    private static final String[] DIR_NAMES = {
+            "Ana Maria Perez Soto_123456_assignsubmission_file_",
+            "Juan Perez Diaz_654321_assignsubmission_file_",
+    };
+
+    private File output;
+    private CSVWriter writer;
+    private Score score;
+    private int row;
+
+    @Setup
+    public void setUp() throws IOException {
+        output = Files.createTempFile("corrector-bench-", ".csv").toFile();
+        writer = new CSVWriter(output.getAbsolutePath());
+        writer.writeHeader();
+        score = new Score();
+        score.notaInicio = 24;
+        score.notaImagenes = 26;
+        score.notaForm = 43;
+        score.notaHtml = 1;
+        score.notaFinal = 93;
+        score.comentarios = "Nota sección form: 43. Formulario completo con todas las validaciones; pero los campos \"no\" son descriptivos, revisar.";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        Files.deleteIfExists(output.toPath());
+    }
+
+    @Benchmark
+    public void writeLine() throws IOException {
+        writer.writeLine(DIR_NAMES[row++ & 1], score);
+    }
+}
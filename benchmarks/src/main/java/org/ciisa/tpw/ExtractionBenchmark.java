@@ -0,0 +1,74 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracción de un ZIP con Commons Compress dentro de la JVM contra el subproceso {@code 7z}.
+ * La variante "7z" necesita el binario en el PATH; sin él se puede correr solo la otra con
+ * {@code -p extractor=commons-compress}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    @Param({"SMALL", "TYPICAL", "PATHOLOGICAL"})
+    public SubmissionFixtures.Size size;
+
+    @Param({"commons-compress", "7z"})
+    public String extractor;
+
+    private Path workDir;
+    private File zip;
+    private File outputDir;
+    private ArchiveExtractor archiveExtractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("corrector-bench-");
+        zip = SubmissionFixtures.zip(SubmissionFixtures.createSubmission(workDir, size), workDir);
+        outputDir = workDir.resolve("extracted").toFile();
+        archiveExtractor = extractor.equals("7z")
+                ? new ExternalSevenZipExtractor(SubmissionFixtures.LIMITS)
+                : new ZipArchiveExtractor(SubmissionFixtures.LIMITS);
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanOutput() throws IOException {
+        FileUtils.deleteDirectory(outputDir);
+        Files.createDirectories(outputDir.toPath());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public File extract() throws IOException {
+        archiveExtractor.extract(zip, outputDir);
+        return outputDir;
+    }
+}
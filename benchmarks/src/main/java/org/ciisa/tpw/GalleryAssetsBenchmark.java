@@ -0,0 +1,56 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de la verificación de imágenes de la galería cuando la entrega trae carpetas de imágenes grandes.
+ * La galería usa solo unas pocas imágenes; el resto del árbol mide lo que cuesta indexar los archivos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GalleryAssetsBenchmark {
+
+    @Param({"100", "2000", "20000"})
+    public int images;
+
+    private Path workDir;
+    private File submission;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("corrector-bench-");
+        submission = SubmissionFixtures.createGalleryWithImageTree(workDir, images);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public Score validateGallery() throws IOException {
+        return new HTMLValidator(submission).validate();
+    }
+}
@@ -0,0 +1,66 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HTMLValidator#validate()} sobre entregas pequeñas, típicas y patológicas,
+ * leídas desde un directorio extraído o directamente desde el ZIP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HTMLValidatorBenchmark {
+
+    @Param({"SMALL", "TYPICAL", "PATHOLOGICAL"})
+    public SubmissionFixtures.Size size;
+
+    @Param({"disk", "zip"})
+    public String source;
+
+    private Path workDir;
+    private File submission;
+    private File zip;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("corrector-bench-");
+        submission = SubmissionFixtures.createSubmission(workDir, size);
+        zip = SubmissionFixtures.zip(submission, workDir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public Score validate() throws IOException {
+        if (source.equals("zip")) {
+            try (FileTree tree = new ZipFileTree(zip, SubmissionFixtures.LIMITS)) {
+                return new HTMLValidator(tree).validate();
+            }
+        }
+        return new HTMLValidator(submission).validate();
+    }
+}
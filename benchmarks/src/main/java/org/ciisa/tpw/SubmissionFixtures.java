@@ -0,0 +1,127 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Genera entregas sintéticas de alumnos para los benchmarks, siempre con la misma semilla
+ * para que las corridas sean comparables.
+ */
+public final class SubmissionFixtures {
+
+    /**
+     * Límites de extracción holgados para estas entregas: la patológica pesa unos 400 MB, sobre el máximo por
+     * defecto de {@link ExtractionLimits#fromSystemProperties()}, y se quiere medir la extracción, no el rechazo.
+     */
+    static final ExtractionLimits LIMITS = new ExtractionLimits(10_000, 1024L * 1024 * 1024, 1_000);
+
+    /**
+     * Tamaños de entrega: pequeña, típica y patológica (páginas enormes, 200 imágenes de 2 MB y miles de
+     * archivos chicos en una carpeta {@code vendor}, que a diferencia de {@code node_modules} sí se extrae).
+     */
+    public enum Size {
+        SMALL(5, 4, 0, 0),
+        TYPICAL(60, 20, 0, 200),
+        PATHOLOGICAL(20_000, 200, 5_000, 2_000);
+
+        final int paragraphs;
+        final int images;
+        final int junkFiles;
+        final int imageBytes;
+
+        Size(int paragraphs, int images, int junkFiles, int imageKilobytes) {
+            this.paragraphs = paragraphs;
+            this.images = images;
+            this.junkFiles = junkFiles;
+            this.imageBytes = imageKilobytes * 1024;
+        }
+    }
+
+    private SubmissionFixtures() {
+    }
+
+    static File createSubmission(Path parent, Size size) throws IOException {
+        Random random = new Random(42);
+        File dir = Files.createTempDirectory(parent, "submission-" + size.name().toLowerCase() + "-").toFile();
+
+        StringBuilder inicio = page("Inicio");
+        inicio.append("<ul><li><a href=\"index.html\">Inicio</a></li><li><a href=\"galeria.html\">Galería</a></li>")
+                .append("<li><a href=\"contacto.html\">Contacto</a></li></ul>\n");
+        for (int i = 0; i < size.paragraphs; i++) {
+            inicio.append("<div class=\"bloque\"><p>Somos una empresa dedicada a la venta de productos artesanales ")
+                    .append(i).append(", con envíos a todo el país y atención personalizada.</p></div>\n");
+        }
+        write(dir.toPath().resolve("index.html"), inicio.append("</body></html>"));
+
+        StringBuilder galeria = page("Galería");
+        for (int i = 0; i < size.images; i++) {
+            String name = "img/foto " + i + ".jpg";
+            galeria.append("<figure><img src=\"").append(name.replace(" ", "%20")).append("\" alt=\"Foto ").append(i)
+                    .append("\"></figure>\n");
+            writeRandom(dir.toPath().resolve(name), size.imageBytes, random);
+        }
+        write(dir.toPath().resolve("galeria.html"), galeria.append("</body></html>"));
+
+        StringBuilder contacto = page("Contacto");
+        contacto.append("<form><label>Nombre</label><input name=\"n\" required><label>Correo</label>")
+                .append("<input type=\"email\" name=\"e\" required><label>Mensaje</label><textarea required></textarea>")
+                .append("</form></body></html>");
+        write(dir.toPath().resolve("contacto.html"), contacto);
+
+        write(dir.toPath().resolve("css/styles.css"), new StringBuilder("body{margin:0}\n@media (max-width:600px){body{font-size:12px}}\n"));
+        for (int i = 0; i < size.junkFiles; i++) {
+            write(dir.toPath().resolve("vendor/paquete" + (i % 50) + "/lib/modulo" + i + ".js"),
+                    new StringBuilder("module.exports = ").append(i).append(";\n"));
+        }
+        return dir;
+    }
+
+    /** Entrega con una galería de 8 imágenes y un árbol de {@code images} archivos de imagen en subcarpetas. */
+    static File createGalleryWithImageTree(Path parent, int images) throws IOException {
+        File dir = createSubmission(parent, Size.SMALL);
+        for (int i = 0; i < images; i++) {
+            write(dir.toPath().resolve("assets/album" + (i % 100) + "/Imagen_" + i + ".PNG"), new StringBuilder("png"));
+        }
+        return dir;
+    }
+
+    static File zip(File directory, Path parent) throws IOException {
+        File zipFile = Files.createTempFile(parent, directory.getName(), ".zip").toFile();
+        Path root = directory.toPath();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zipFile);
+             Stream<Path> walk = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                out.putArchiveEntry(new ZipArchiveEntry(path.toFile(), root.relativize(path).toString().replace(File.separatorChar, '/')));
+                Files.copy(path, out);
+                out.closeArchiveEntry();
+            }
+        }
+        return zipFile;
+    }
+
+    private static StringBuilder page(String title) {
+        return new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>").append(title)
+                .append("</title><link rel=\"stylesheet\" href=\"css/styles.css\">")
+                .append("<meta name=\"viewport\" content=\"width=device-width\"></head><body>\n");
+    }
+
+    private static void write(Path path, CharSequence content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeRandom(Path path, int bytes, Random random) throws IOException {
+        byte[] data = new byte[bytes];
+        random.nextBytes(data);
+        Files.createDirectories(path.getParent());
+        Files.write(path, data);
+    }
+}
@@ -1,138 +1,147 @@
 package org.ciisa.tpw;
 
-import com.github.junrar.exception.RarException;
-import org.apache.commons.compress.archivers.ArchiveInputStream;
-import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipFile;
-import org.apache.commons.compress.utils.IOUtils;
-import org.apache.commons.io.FileUtils;
-import net.sf.sevenzipjbinding.*;
-import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
-
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class App {
-    public static void main(String[] args) throws IOException {
-        File rootDir = new File("D:\\Descargas\\IF101IINF_T1-2024_53_ON_O-EVALUACIÓN DE UNIDAD 1-185483");
-        File[] directories = rootDir.listFiles(File::isDirectory);
-
-        CSVWriter csvWriter = new CSVWriter("output.csv");
-        csvWriter.writeHeader();
+    private static final String DEFAULT_ROOT_DIR = "D:\\Descargas\\IF101IINF_T1-2024_53_ON_O-EVALUACIÓN DE UNIDAD 1-185483";
 
-        for (File dir : directories) {
-            processDirectory(dir, csvWriter);
-        }
-
-        csvWriter.close();
-    }
-
-    private static void processDirectory(File dir, CSVWriter csvWriter) {
-        try {
-            File[] files = dir.listFiles((d, name) -> name.endsWith(".zip") || name.endsWith(".rar"));
-            for (File file : files) {
-                extractAndProcessFile(file, csvWriter, dir.getName());
+    /**
+     * Uso: {@code App [--watch | --coordinator] [directorio raíz]} o {@code App --worker <directorio de la cola>}.
+     * Con --watch queda corriendo y corrige las entregas a medida que llegan. Con --coordinator reparte la corrida
+     * entre varios procesos trabajadores (ver {@link GradingCoordinator}).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean watch = false;
+        boolean coordinator = false;
+        File queueDir = null;
+        File rootDir = new File(DEFAULT_ROOT_DIR);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--watch")) {
+                watch = true;
+            } else if (args[i].equals("--coordinator")) {
+                coordinator = true;
+            } else if (args[i].equals("--worker") && i + 1 < args.length) {
+                queueDir = new File(args[++i]);
+            } else {
+                rootDir = new File(args[i]);
             }
-        } catch (Exception e) {
-            System.out.println("Error processing directory " + dir.getName() + ": " + e.getMessage());
+        }
+        GradingOptions options = GradingOptions.fromSystemProperties();
+        if (queueDir != null) {
+            work(queueDir, options);
+        } else if (coordinator) {
+            new GradingCoordinator(rootDir, options).run();
+        } else if (watch) {
+            watch(rootDir, options);
+        } else {
+            gradeAll(rootDir, options);
         }
     }
 
-    private static void extractAndProcessFile(File file, CSVWriter csvWriter, String dirName) throws InterruptedException, IOException {
-        // El destino se establece como el directorio padre del archivo comprimido
-        File destDir = file.getParentFile();
+    private static void gradeAll(File rootDir, GradingOptions options) throws IOException, InterruptedException {
+        File[] directories = rootDir.listFiles(File::isDirectory);
+        if (directories == null) {
+            throw new IOException("Unable to list student directories in " + rootDir.getAbsolutePath());
+        }
+        // El orden del CSV no depende del orden en que terminan los alumnos
+        Arrays.sort(directories, Comparator.comparing(File::getName));
 
-        // Limpieza inicial: eliminar todo excepto .zip y .rar
-        File[] filesInDestDir = destDir.listFiles();
-        if (filesInDestDir != null) {
-            for (File existingFile : filesInDestDir) {
-                if (!existingFile.getName().endsWith(".zip") && !existingFile.getName().endsWith(".rar")) {
-                    deleteFileOrDirectory(existingFile);
-                }
-            }
+        ResultCache cache = options.openCache();
+        SimilarityIndex similarity = options.openSimilarityIndex();
+        GradingMetrics metrics = new GradingMetrics();
+        Grader grader = new Grader(options, cache, metrics, similarity);
+        ExecutorService executor = options.createExecutor();
+        List<Future<List<GradingResult>>> pending = new ArrayList<>();
+        for (File dir : directories) {
+            pending.add(executor.submit(() -> grader.gradeDirectory(dir)));
         }
 
-        // Intentamos primero con el comando de 7zip
-        String command = String.format("7z x \"%s\" -o\"%s\" -y", file.getAbsolutePath(), destDir.getAbsolutePath());
-        Process process = Runtime.getRuntime().exec(command);
+        // Solo el hilo principal escribe los resultados, siguiendo el orden de los directorios
+        ResultWriter resultWriter = ResultWriter.open(options.outputPath);
         try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Failed to extract archive using 7z with exit code " + exitCode+" de:"+file);
+            resultWriter.writeHeader();
+            for (int i = 0; i < pending.size(); i++) {
+                List<GradingResult> results;
+                try {
+                    results = awaitResults(pending.get(i), directories[i]);
+                } catch (InterruptedException e) {
+                    // El CSV queda completo: los alumnos que faltan aparecen como no corregidos
+                    System.out.println("Interrupted while waiting for " + directories[i].getName());
+                    for (int j = i; j < directories.length; j++) {
+                        resultWriter.write(GradingResult.failure(directories[j].getName(), "", "la corrida se interrumpió",
+                                SubmissionMetrics.none()));
+                    }
+                    throw e;
+                }
+                for (GradingResult result : results) {
+                    long start = System.nanoTime();
+                    resultWriter.write(result);
+                    result.metrics.record(Stage.CSV_WRITE, start);
+                }
             }
-        } catch (IOException | InterruptedException e) {
-            System.out.println("7z failed, trying with Apache Commons Compress: " + e.getMessage());
-            if (file.getName().endsWith(".zip")) {
-                unzipUsingCommonsCompress(file, destDir);
-            } else {
-                throw new IOException("Unsupported archive format for fallback: " + file.getName());
-                // For RAR files, an additional method with support for RAR extraction should be implemented.
+        } finally {
+            executor.shutdownNow();
+            resultWriter.close();
+            if (cache != null) {
+                cache.close();
             }
         }
 
-        // Identificar si los archivos HTML están directamente en tempDir o en una subcarpeta
-        File[] htmlFiles = destDir.listFiles((d, name) -> name.endsWith(".html"));
-        File validationDirectory = destDir;
+        if (similarity != null) {
+            // Los pares parecidos van en un archivo aparte, junto a las notas
+            similarity.writeReport(options.similarityOutputPath, options.similarityThreshold());
+            similarity.save();
+        }
+        metrics.printSummary(System.out, options.slowestReported);
+        if (options.metricsPath != null) {
+            metrics.writeJson(options.metricsPath);
+        }
+    }
 
-        if (htmlFiles == null || htmlFiles.length == 0) {
-            // No HTML files at the root, check for a single directory ignoring __MACOSX
-            File[] directories = destDir.listFiles(File::isDirectory);
-            File[] validDirectories = Arrays.stream(directories)
-                    .filter(dir -> !dir.getName().equals("__MACOSX"))
-                    .toArray(File[]::new);
-            if (validDirectories.length == 1) {
-                validationDirectory = validDirectories[0]; // Use the single valid directory
-            } else {
-                throw new IOException("Expected HTML files at the root or a single valid folder within the temporary directory.");
+    private static void watch(File rootDir, GradingOptions options) throws IOException, InterruptedException {
+        ResultCache cache = options.openCache();
+        GradingMetrics metrics = new GradingMetrics();
+        Grader grader = new Grader(options, cache, metrics);
+        ExecutorService executor = options.createExecutor();
+        try {
+            new SubmissionWatcher(rootDir, grader, new ResultStore(options.outputPath), options.watchDebounceMillis).run(executor);
+        } finally {
+            executor.shutdownNow();
+            if (cache != null) {
+                cache.close();
             }
         }
-
-        HTMLValidator validator = new HTMLValidator(validationDirectory);
-        Score score = validator.validate();
-        csvWriter.writeLine(dirName, score);
     }
 
-    // Método de utilidad para eliminar archivos y directorios
-// Utiliza recursividad para eliminar directorios no vacíos
-    private static void deleteFileOrDirectory(File fileOrDirectoryToDelete) {
-        if (fileOrDirectoryToDelete.isDirectory()) {
-            File[] allContents = fileOrDirectoryToDelete.listFiles();
-            if (allContents != null) {
-                for (File file : allContents) {
-                    deleteFileOrDirectory(file);
-                }
+    private static void work(File queueDir, GradingOptions options) throws IOException, InterruptedException {
+        ResultCache cache = options.openCache();
+        GradingMetrics metrics = new GradingMetrics();
+        Grader grader = new Grader(options, cache, metrics);
+        try {
+            new GradingWorker(new WorkQueue(queueDir), grader, options).run();
+        } finally {
+            if (cache != null) {
+                cache.close();
             }
         }
-        if (!fileOrDirectoryToDelete.delete()) {
-            System.err.println("Unable to delete file or directory: " + fileOrDirectoryToDelete.getAbsolutePath());
-        }
+        metrics.printSummary(System.out, options.slowestReported);
     }
 
-    // Método agregado para descomprimir archivos ZIP usando Apache Commons Compress
-    private static void unzipUsingCommonsCompress(File zipFile, File outputDir) throws IOException {
-        try (ZipFile zip = new ZipFile(zipFile)) {
-            Enumeration<ZipArchiveEntry> entries = zip.getEntries();
-            while (entries.hasMoreElements()) {
-                ZipArchiveEntry entry = entries.nextElement();
-                File entryDestination = new File(outputDir, entry.getName());
-                if (entry.isDirectory()) {
-                    Files.createDirectories(entryDestination.toPath());
-                } else {
-                    File parent = entryDestination.getParentFile();
-                    if (parent != null) {
-                        Files.createDirectories(parent.toPath());
-                    }
-                    try (InputStream in = zip.getInputStream(entry);
-                         OutputStream out = Files.newOutputStream(entryDestination.toPath())) {
-                        IOUtils.copy(in, out);
-                    }
-                }
-            }
+    /** Resultados del directorio; si la corrección falló sin llegar a dar una fila, una fila de error. */
+    private static List<GradingResult> awaitResults(Future<List<GradingResult>> future, File dir) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            System.out.println("Error processing directory " + dir.getName() + ": " + e.getCause());
+            return List.of(GradingResult.failure(dir.getName(), "", "error inesperado: " + e.getCause(), SubmissionMetrics.none()));
         }
     }
 }
@@ -0,0 +1,16 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Motor capaz de extraer uno o más formatos de archivo comprimido en un directorio.
+ */
+public interface ArchiveExtractor {
+
+    String name();
+
+    boolean supports(ArchiveType type);
+
+    void extract(File archive, File outputDir) throws IOException;
+}
@@ -0,0 +1,84 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cadena de extractores: se prueban en orden los que soportan el formato detectado,
+ * limpiando el directorio de salida entre un intento y otro.
+ */
+public class ArchiveExtractors {
+    private final List<ArchiveExtractor> extractors;
+
+    public ArchiveExtractors(List<ArchiveExtractor> extractors) {
+        this.extractors = extractors;
+    }
+
+    /**
+     * Extractores dentro de la JVM primero; el binario 7z externo solo si useExternal7z es verdadero.
+     */
+    public static ArchiveExtractors defaultChain(boolean useExternal7z, ExtractionLimits limits) {
+        List<ArchiveExtractor> extractors = new ArrayList<>();
+        extractors.add(new ZipArchiveExtractor(limits));
+        extractors.add(new RarArchiveExtractor(limits));
+        extractors.add(new SevenZipArchiveExtractor(limits));
+        if (useExternal7z) {
+            extractors.add(new ExternalSevenZipExtractor(limits));
+        }
+        return new ArchiveExtractors(extractors);
+    }
+
+    public void extract(File archive, File outputDir) throws IOException {
+        extract(archive, outputDir, SubmissionMetrics.none());
+    }
+
+    public void extract(File archive, File outputDir, SubmissionMetrics metrics) throws IOException {
+        ArchiveType type = ArchiveType.detect(archive);
+        if (type == null) {
+            throw new IOException("Unsupported archive format: " + archive.getName());
+        }
+        IOException lastFailure = null;
+        for (ArchiveExtractor extractor : extractors) {
+            if (!extractor.supports(type)) {
+                continue;
+            }
+            try {
+                extractor.extract(archive, outputDir);
+                return;
+            } catch (UnsafeArchiveException e) {
+                // Otro extractor llegaría al mismo límite
+                FileUtils.cleanDirectory(outputDir);
+                throw e;
+            } catch (IOException e) {
+                UnsafeArchiveException unsafe = unsafeCause(e);
+                if (unsafe != null) {
+                    // junrar y 7-Zip-JBinding envuelven la excepción que lanza nuestro stream de salida
+                    FileUtils.cleanDirectory(outputDir);
+                    throw unsafe;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    // Se acabó el tiempo de la entrega: no tiene sentido probar otro extractor
+                    throw e;
+                }
+                System.out.println(extractor.name() + " failed on " + archive.getName() + ", trying next extractor: " + e.getMessage());
+                FileUtils.cleanDirectory(outputDir);
+                metrics.fallbacks++;
+                lastFailure = e;
+            }
+        }
+        throw new IOException("No extractor could handle " + archive.getName() + " (" + type + ")", lastFailure);
+    }
+
+    private static UnsafeArchiveException unsafeCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnsafeArchiveException) {
+                return (UnsafeArchiveException) cause;
+            }
+        }
+        return null;
+    }
+}
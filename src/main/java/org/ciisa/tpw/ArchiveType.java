@@ -0,0 +1,76 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Formatos de archivo comprimido soportados, reconocidos por sus bytes mágicos
+ * y no por la extensión (los alumnos suben archivos .rar que en realidad son .zip y viceversa).
+ */
+public enum ArchiveType {
+    ZIP(new byte[]{'P', 'K', 3, 4}, new byte[]{'P', 'K', 5, 6}),
+    RAR(new byte[]{'R', 'a', 'r', '!', 0x1A, 0x07}),
+    SEVEN_ZIP(new byte[]{'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C});
+
+    // Cabecera local de ZIP (30 bytes) más el nombre de la primera entrada
+    private static final int HEADER_LENGTH = 30 + 64;
+    // Documentos que por dentro son un ZIP: un .docx o un .jar junto a la entrega no es la entrega
+    private static final Set<String> DOCUMENT_EXTENSIONS = Set.of("docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "jar");
+    // Primera entrada que escriben Office ([Content_Types].xml), ODF y EPUB (mimetype) y jar (META-INF/)
+    private static final Set<String> DOCUMENT_FIRST_ENTRIES = Set.of("[Content_Types].xml", "mimetype", "META-INF/", "META-INF/MANIFEST.MF");
+
+    private final byte[][] signatures;
+
+    ArchiveType(byte[]... signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Devuelve el formato del archivo, o null si no es un archivo comprimido conocido. Los documentos con
+     * formato ZIP (Office, OpenDocument, EPUB, jar) tampoco cuentan como comprimido.
+     */
+    public static ArchiveType detect(File file) {
+        if (!file.isFile() || DOCUMENT_EXTENSIONS.contains(extension(file.getName()))) {
+            return null;
+        }
+        byte[] header = new byte[HEADER_LENGTH];
+        int read;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            read = in.readNBytes(header, 0, HEADER_LENGTH);
+        } catch (IOException e) {
+            return null;
+        }
+        for (ArchiveType type : values()) {
+            for (byte[] signature : type.signatures) {
+                if (read >= signature.length && Arrays.equals(header, 0, signature.length, signature, 0, signature.length)) {
+                    return type == ZIP && isDocument(header, read) ? null : type;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Verdadero si la primera entrada del ZIP es la que identifica a un documento. */
+    private static boolean isDocument(byte[] header, int read) {
+        if (read < 30 || header[2] != 3) {
+            return false;
+        }
+        int nameLength = (header[26] & 0xFF) | (header[27] & 0xFF) << 8;
+        if (30 + nameLength > read) {
+            return false;
+        }
+        String firstEntry = new String(header, 30, nameLength, StandardCharsets.ISO_8859_1);
+        return DOCUMENT_FIRST_ENTRIES.contains(firstEntry);
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,129 @@
+package org.ciisa.tpw;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de los archivos de una entrega, construido una sola vez al cargarla.
+ * Las claves están normalizadas (sin distinguir mayúsculas y con los %XX decodificados),
+ * porque los alumnos suelen escribir los src con otra capitalización o con espacios codificados.
+ */
+public class AssetIndex {
+    private static final Pattern URL_SCHEME = Pattern.compile("[A-Za-z][A-Za-z0-9+.-]*:");
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "svg", "webp", "avif");
+
+    /** Metadatos de un archivo de la entrega. */
+    public static class Asset {
+        final String path;
+        final long size;
+        final boolean image;
+
+        Asset(String path, long size, boolean image) {
+            this.path = path;
+            this.size = size;
+            this.image = image;
+        }
+    }
+
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    public AssetIndex(FileTree files) throws IOException {
+        for (String path : files.paths()) {
+            Asset asset = new Asset(path, files.size(path), IMAGE_EXTENSIONS.contains(extension(path)));
+            assets.put(normalize(path), asset);
+        }
+    }
+
+    /** Busca un archivo a partir de una referencia relativa a la raíz de la entrega (src, href). */
+    public Asset find(String reference) {
+        return assets.get(normalize(reference));
+    }
+
+    /**
+     * Busca el archivo al que apunta un href o src escrito en la página fromPath: las rutas relativas se resuelven
+     * desde la carpeta de la página y las que empiezan con '/' desde la raíz de la entrega.
+     */
+    public Asset resolve(String fromPath, String reference) {
+        String path = reference.trim();
+        if (path.startsWith("/")) {
+            return find(path);
+        }
+        int slash = fromPath.lastIndexOf('/');
+        return find(slash < 0 ? path : fromPath.substring(0, slash + 1) + path);
+    }
+
+    /** Falso para enlaces a otros sitios (http:, mailto:, //cdn...) y anclas dentro de la misma página. */
+    static boolean isLocalReference(String reference) {
+        String path = reference.trim();
+        return !path.isEmpty() && !path.startsWith("#") && !path.startsWith("?") && !path.startsWith("//")
+                && !URL_SCHEME.matcher(path).lookingAt();
+    }
+
+    /** Igual que {@link #find(String)}, pero solo si el archivo es una imagen. */
+    public Asset findImage(String reference) {
+        Asset asset = find(reference);
+        return asset != null && asset.image ? asset : null;
+    }
+
+    public Collection<Asset> all() {
+        return assets.values();
+    }
+
+    /**
+     * Normaliza una ruta o referencia: decodifica %XX, quita query y fragmento,
+     * resuelve "." y "..", usa '/' como separador y pasa a minúsculas.
+     */
+    static String normalize(String reference) {
+        String path = reference.trim();
+        int cut = indexOfAny(path, '?', '#');
+        if (cut >= 0) {
+            path = path.substring(0, cut);
+        }
+        if (path.indexOf('%') >= 0) {
+            try {
+                // '+' es un carácter válido en una ruta, no un espacio
+                path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                // Secuencia %XX inválida: se usa la ruta tal cual
+            }
+        }
+        path = path.replace('\\', '/');
+
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments).toLowerCase(Locale.ROOT);
+    }
+
+    private static int indexOfAny(String value, char first, char second) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == first || c == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < 0 ? "" : path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,53 +1,79 @@
 package org.ciisa.tpw;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
-public class CSVWriter {
-    private FileWriter writer;
+public class CSVWriter implements ResultWriter {
+    // Flush every few rows so a crash mid-run keeps the rows already written
+    private static final int FLUSH_EVERY = 25;
+
+    private final BufferedWriter writer;
+    private int pendingRows;
 
     public CSVWriter(String outputPath) throws IOException {
-        writer = new FileWriter(outputPath);
+        writer = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8);
     }
 
-    public void writeHeader() throws IOException {
+    @Override
+    public synchronized void writeHeader() throws IOException {
         writer.write("Nombre,2do Nombre,Primer Apellido,2do apellido,nota inicio,nota imagenes,nota form,nota html,notal final,comentarios\n");
+        writer.flush();
+    }
+
+    @Override
+    public void write(GradingResult result) throws IOException {
+        writeLine(result.dirName, result.score);
     }
 
-    public void writeLine(String dirName, Score score) throws IOException {
-        // Divide dirName by underscore '_'
-        String[] parts = dirName.split("_");
-        String firstPart = parts[0];  // Take the first part
-
-        // Split the first part by spaces
-        String[] nameComponents = firstPart.split(" ");
-
-        // Determine the number of components and adjust the CSV fields according to the number of names
-        String csvLine;
-        if (nameComponents.length == 3) {
-            // If there are only three names, keep the second CSV field empty
-            csvLine = String.format("%s,%s,%s,%s,%d,%d,%d,%d,%d,%s\n",
-                    nameComponents[0], "", nameComponents[1], nameComponents[2],
-                    score.notaInicio, score.notaImagenes, score.notaForm, score.notaHtml, score.notaFinal, "\""+score.comentarios+ "\"");
-        } else {
-            // If there are four names, separate each into the CSV fields
-            // Ensure that there are at least four components, fill the missing ones with an empty string if necessary
-            String[] finalComponents = new String[4];
-            for (int i = 0; i < finalComponents.length; i++) {
-                finalComponents[i] = (i < nameComponents.length) ? nameComponents[i] : "";
-            }
-            csvLine = String.format("%s,%s,%s,%s,%d,%d,%d,%d,%d,%s\n",
-                    finalComponents[0], finalComponents[1], finalComponents[2], finalComponents[3],
-                    score.notaInicio, score.notaImagenes, score.notaForm, score.notaHtml, score.notaFinal, score.comentarios);
+    public synchronized void writeLine(String dirName, Score score) throws IOException {
+        String[] names = GradingResult.nameComponents(dirName);
+        for (String name : names) {
+            writeField(name);
+            writer.write(',');
         }
+        writer.write(Integer.toString(score.notaInicio));
+        writer.write(',');
+        writer.write(Integer.toString(score.notaImagenes));
+        writer.write(',');
+        writer.write(Integer.toString(score.notaForm));
+        writer.write(',');
+        writer.write(Integer.toString(score.notaHtml));
+        writer.write(',');
+        writer.write(Integer.toString(score.notaFinal));
+        writer.write(',');
+        writeField(score.comentarios);
+        writer.write('\n');
 
-        // Write the line to the CSV file
-        writer.write(csvLine);
+        if (++pendingRows >= FLUSH_EVERY) {
+            writer.flush();
+            pendingRows = 0;
+        }
     }
 
+    // RFC 4180: quote fields containing commas, quotes or line breaks, doubling inner quotes
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
 
-    public void close() throws IOException {
+    @Override
+    public synchronized void close() throws IOException {
         writer.close();
     }
 }
-
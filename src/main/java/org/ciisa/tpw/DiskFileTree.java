@@ -0,0 +1,59 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link FileTree} sobre un directorio ya extraído en disco.
+ */
+public class DiskFileTree implements FileTree {
+    private final Path root;
+    private List<String> paths;
+    private final Map<String, Long> sizes = new HashMap<>();
+
+    public DiskFileTree(File root) {
+        this.root = root.toPath();
+    }
+
+    @Override
+    public List<String> paths() throws IOException {
+        if (paths == null) {
+            List<String> found = new ArrayList<>();
+            // Los atributos se leen durante el recorrido, sin un stat adicional por archivo
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                        found.add(relativePath);
+                        sizes.put(relativePath, attributes.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            paths = found;
+        }
+        return paths;
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        return Files.newInputStream(root.resolve(path));
+    }
+
+    @Override
+    public long size(String path) throws IOException {
+        Long size = sizes.get(path);
+        return size != null ? size : Files.size(root.resolve(path));
+    }
+}
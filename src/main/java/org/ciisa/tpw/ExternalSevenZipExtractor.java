@@ -0,0 +1,162 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Último recurso: ejecuta el binario {@code 7z} instalado en el sistema.
+ */
+public class ExternalSevenZipExtractor implements ArchiveExtractor {
+    private static final long TIMEOUT_MILLIS = Long.getLong("corrector.external7z.timeoutMs", 2 * 60 * 1000);
+    // Cada cuánto se revisa lo que lleva escrito 7z
+    private static final long POLL_MILLIS = 200;
+    // -p vacío: un archivo cifrado falla de inmediato en vez de pedir la clave; -bd: sin indicador de progreso
+    private static final List<String> COMMON_SWITCHES = List.of("-p", "-bd", "-y");
+
+    private final ExtractionLimits limits;
+
+    public ExternalSevenZipExtractor() {
+        this(ExtractionLimits.fromSystemProperties());
+    }
+
+    public ExternalSevenZipExtractor(ExtractionLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public String name() {
+        return "7z";
+    }
+
+    @Override
+    public boolean supports(ArchiveType type) {
+        return true;
+    }
+
+    @Override
+    public void extract(File archive, File outputDir) throws IOException {
+        ExtractionLimits.Session session = limits.start(archive, outputDir);
+        // Lo que declara el índice se revisa antes de escribir nada: una bomba se rechaza sin tocar el disco
+        list(archive, session);
+
+        List<String> command = new ArrayList<>(List.of("7z", "x", archive.getAbsolutePath(), "-o" + outputDir.getAbsolutePath()));
+        command.addAll(COMMON_SWITCHES);
+        // 7z se encarga de no escribir fuera del directorio; las carpetas ignoradas se excluyen al extraer
+        command.addAll(ExtractionLimits.sevenZipExclusions());
+        // La salida se descarta, así 7z nunca se bloquea con el buffer lleno. Mientras corre se vigila lo que
+        // lleva escrito, porque el índice puede mentir
+        int exitCode = run(command, ProcessBuilder.Redirect.DISCARD, archive, session::checkProgress);
+        if (exitCode != 0) {
+            throw new IOException("Failed to extract archive using 7z with exit code " + exitCode + " de:" + archive);
+        }
+        session.verify();
+    }
+
+    /** Suma las entradas y tamaños que declara {@code 7z l -slt}, sin contar las carpetas ni lo que se ignora. */
+    private void list(File archive, ExtractionLimits.Session session) throws IOException {
+        List<String> command = new ArrayList<>(List.of("7z", "l", "-slt", archive.getAbsolutePath()));
+        command.addAll(COMMON_SWITCHES);
+        command.addAll(ExtractionLimits.sevenZipExclusions());
+        // El listado va a un archivo y no a un pipe: leer un pipe bloquea y la interrupción no lo corta
+        File output = File.createTempFile("corrector-7z-", ".txt");
+        try {
+            int exitCode = run(command, ProcessBuilder.Redirect.to(output), archive, () -> { });
+            if (exitCode != 0) {
+                throw new IOException("Failed to list archive using 7z with exit code " + exitCode + " de:" + archive);
+            }
+            Listing listing = new Listing();
+            // Solo importan las claves, que son ASCII; así un nombre en otra codificación no hace fallar la lectura
+            try (BufferedReader reader = Files.newBufferedReader(output.toPath(), StandardCharsets.ISO_8859_1)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    listing.accept(line);
+                }
+            }
+            listing.accept("");
+            session.checkDeclared(listing.entries, listing.bytes);
+        } finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    /** Revisión que se hace mientras 7z sigue corriendo. */
+    private interface ProgressCheck {
+        void check() throws IOException;
+    }
+
+    /**
+     * Ejecuta 7z sin entrada estándar y espera de a {@link #POLL_MILLIS}, llamando a check entre esperas.
+     * El proceso se mata si vence el plazo, si check falla o si se interrumpe el hilo. Devuelve el código de salida.
+     */
+    private int run(List<String> command, ProcessBuilder.Redirect output, File archive, ProgressCheck check) throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+        try {
+            // Si igual pidiera algo por la entrada estándar, recibe fin de archivo en vez de esperar para siempre
+            process.getOutputStream().close();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+            while (!process.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                check.check();
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("7z did not finish within " + TIMEOUT_MILLIS + " ms on " + archive);
+                }
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while running 7z on " + archive);
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Lee la salida de {@code 7z l -slt}: después de la línea de guiones viene un bloque {@code Clave = valor}
+     * por entrada, separados por líneas en blanco.
+     */
+    static class Listing {
+        int entries;
+        long bytes;
+        private boolean inEntries;
+        private boolean hasPath;
+        private boolean folder;
+        private long size;
+
+        void accept(String line) {
+            if (!inEntries) {
+                inEntries = line.startsWith("----------");
+                return;
+            }
+            if (line.isBlank()) {
+                if (hasPath && !folder) {
+                    entries++;
+                    bytes += size;
+                }
+                hasPath = false;
+                folder = false;
+                size = 0;
+            } else if (line.startsWith("Path = ")) {
+                hasPath = true;
+            } else if (line.startsWith("Folder = +") || line.startsWith("Attributes = D")) {
+                folder = true;
+            } else if (line.startsWith("Size = ")) {
+                try {
+                    size = Long.parseLong(line.substring("Size = ".length()).trim());
+                } catch (NumberFormatException e) {
+                    size = 0; // Tamaño desconocido: lo cubre la vigilancia durante la extracción
+                }
+            }
+        }
+    }
+}
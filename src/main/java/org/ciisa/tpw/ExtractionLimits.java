@@ -0,0 +1,227 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Límites que se aplican al extraer la entrega de un alumno, para que un archivo malicioso o mal armado
+ * no pueda escribir fuera del directorio de trabajo (zip-slip) ni llenar el disco (zip bomb).
+ *
+ * <p>También define qué entradas se ignoran por no tener nada que corregir: carpetas de metadatos de
+ * macOS, dependencias de node, repositorios git y videos. Se descartan antes de escribir nada.</p>
+ */
+public class ExtractionLimits {
+    /** Carpetas que se ignoran en cualquier nivel de la entrega. */
+    static final Set<String> SKIPPED_DIRECTORIES = Set.of("__MACOSX", "node_modules", ".git");
+    static final Set<String> SKIPPED_EXTENSIONS = Set.of("mp4", "mov", "avi", "mkv", "webm", "wmv", "flv", "m4v", "mpg", "mpeg");
+    // Bajo este tamaño no se revisa la tasa de compresión: un HTML chico puede comprimirse mucho
+    private static final long MIN_BYTES_FOR_RATIO = 1024 * 1024;
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
+    // Cantidad máxima de archivos por entrega
+    final int maxEntries;
+    // Bytes máximos que se escriben por entrega
+    final long maxTotalBytes;
+    // Relación máxima entre los bytes extraídos y el tamaño del archivo comprimido
+    final long maxRatio;
+
+    public ExtractionLimits(int maxEntries, long maxTotalBytes, long maxRatio) {
+        this.maxEntries = maxEntries;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxRatio = maxRatio;
+    }
+
+    public static ExtractionLimits fromSystemProperties() {
+        return new ExtractionLimits(Integer.getInteger("corrector.extract.maxEntries", 5000),
+                Long.getLong("corrector.extract.maxBytes", 200L * 1024 * 1024),
+                Long.getLong("corrector.extract.maxRatio", 100));
+    }
+
+    /** Verdadero si la entrada está dentro de una carpeta ignorada o es un video. */
+    static boolean isSkipped(String entryName) {
+        String path = entryName.replace('\\', '/');
+        for (String segment : path.split("/")) {
+            if (SKIPPED_DIRECTORIES.contains(segment)) {
+                return true;
+            }
+        }
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') && SKIPPED_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /** Exclusiones equivalentes a {@link #isSkipped} para el binario 7z. */
+    static List<String> sevenZipExclusions() {
+        List<String> exclusions = new ArrayList<>();
+        for (String directory : SKIPPED_DIRECTORIES) {
+            exclusions.add("-xr!" + directory);
+        }
+        for (String extension : SKIPPED_EXTENSIONS) {
+            exclusions.add("-xr!*." + extension);
+        }
+        return exclusions;
+    }
+
+    /** Comienza la extracción de un archivo; los contadores son propios de cada intento. */
+    Session start(File archive, File outputDir) throws IOException {
+        return new Session(archive, outputDir);
+    }
+
+    /** Comienza la lectura en memoria de un archivo: se cuentan los bytes descomprimidos, sin directorio de salida. */
+    Session start(File archive) throws IOException {
+        return new Session(archive, null);
+    }
+
+    /**
+     * Cuenta lo escrito en una extracción y falla con {@link UnsafeArchiveException} apenas se supera un límite.
+     * Los tamaños declarados en el archivo no se usan: se cuenta lo que realmente se escribe.
+     */
+    class Session {
+        private final File archive;
+        private final Path root;
+        private final long maxBytes;
+        private int entries;
+        private long bytes;
+
+        private Session(File archive, File outputDir) throws IOException {
+            this.archive = archive;
+            this.root = outputDir == null ? null : outputDir.getCanonicalFile().toPath();
+            long byRatio = archive.length() * maxRatio;
+            this.maxBytes = Math.min(maxTotalBytes, Math.max(byRatio, MIN_BYTES_FOR_RATIO));
+        }
+
+        /**
+         * Destino de una entrada dentro del directorio de salida, o null si la entrada se ignora.
+         * Falla si la ruta sale del directorio o si la entrega tiene demasiados archivos.
+         */
+        File target(String entryName) throws IOException {
+            if (isSkipped(entryName)) {
+                return null;
+            }
+            Path target = root.resolve(entryName.replace('\\', '/')).normalize();
+            if (!target.startsWith(root) || !target.toFile().getCanonicalFile().toPath().startsWith(root)) {
+                throw new UnsafeArchiveException("Entry outside the output directory in " + archive.getName() + ": " + entryName);
+            }
+            if (++entries > maxEntries) {
+                throw new UnsafeArchiveException(archive.getName() + " has more than " + maxEntries + " entries");
+            }
+            return target.toFile();
+        }
+
+        /** Copia una entrada al disco con {@link FileChannel#transferFrom}, sin pasar por un buffer propio. */
+        void copy(InputStream in, File target) throws IOException {
+            createParent(target);
+            ReadableByteChannel source = Channels.newChannel(in);
+            try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                    count(transferred);
+                }
+            }
+        }
+
+        /** Para las librerías que escriben en un OutputStream: cuenta cada escritura contra los límites. */
+        OutputStream open(File target) throws IOException {
+            createParent(target);
+            return new FilterOutputStream(Files.newOutputStream(target.toPath())) {
+                @Override
+                public void write(byte[] data, int offset, int length) throws IOException {
+                    count(length);
+                    out.write(data, offset, length);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    count(1);
+                    out.write(b);
+                }
+            };
+        }
+
+        /** Revisa después de la extracción lo que dejó una herramienta externa en el directorio de salida. */
+        void verify() throws IOException {
+            List<Path> written;
+            try (Stream<Path> files = Files.walk(root)) {
+                written = files.filter(Files::isRegularFile).toList();
+            }
+            entries += written.size();
+            if (entries > maxEntries) {
+                throw new UnsafeArchiveException(archive.getName() + " has more than " + maxEntries + " entries");
+            }
+            for (Path path : written) {
+                count(Files.size(path));
+            }
+        }
+
+        /** Rechaza el archivo si lo que declara su índice ya supera los límites, antes de escribir nada. */
+        void checkDeclared(int declaredEntries, long declaredBytes) throws IOException {
+            if (declaredEntries > maxEntries) {
+                throw new UnsafeArchiveException(archive.getName() + " declares " + declaredEntries
+                        + " entries, more than " + maxEntries);
+            }
+            if (declaredBytes > maxBytes) {
+                throw new UnsafeArchiveException(archive.getName() + " declares " + declaredBytes
+                        + " bytes, more than " + maxBytes + " (" + archive.length() + " compressed)");
+            }
+        }
+
+        /**
+         * Revisa lo que lleva escrito una herramienta externa que sigue corriendo, sin sumarlo a los contadores.
+         * Los archivos que desaparecen mientras se recorre el directorio se ignoran.
+         */
+        void checkProgress() throws IOException {
+            long written = 0;
+            int files = 0;
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    File file = path.toFile();
+                    if (file.isFile()) {
+                        files++;
+                        written += file.length();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                return; // El directorio cambió durante el recorrido: se revisa en la próxima pasada
+            }
+            if (entries + files > maxEntries) {
+                throw new UnsafeArchiveException(archive.getName() + " has more than " + maxEntries + " entries");
+            }
+            if (bytes + written > maxBytes) {
+                throw new UnsafeArchiveException(archive.getName() + " expands to more than " + maxBytes
+                        + " bytes (" + archive.length() + " compressed)");
+            }
+        }
+
+        void count(long written) throws IOException {
+            bytes += written;
+            if (bytes > maxBytes) {
+                throw new UnsafeArchiveException(archive.getName() + " expands to more than " + maxBytes
+                        + " bytes (" + archive.length() + " compressed)");
+            }
+        }
+
+        private void createParent(File target) throws IOException {
+            File parent = target.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+        }
+    }
+}
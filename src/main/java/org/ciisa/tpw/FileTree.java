@@ -0,0 +1,56 @@
+package org.ciisa.tpw;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Vista de solo lectura sobre los archivos de una entrega, ya sea un directorio en disco
+ * o las entradas de un archivo comprimido. Las rutas son relativas y usan '/' como separador.
+ */
+public interface FileTree extends Closeable {
+
+    /** Rutas de todos los archivos regulares (no directorios) de la entrega. */
+    List<String> paths() throws IOException;
+
+    InputStream open(String path) throws IOException;
+
+    /** Tamaño en bytes del archivo, o -1 si no se conoce. */
+    long size(String path) throws IOException;
+
+    default FileTree subtree(String prefix) {
+        return new SubFileTree(this, prefix.endsWith("/") ? prefix : prefix + "/");
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Devuelve el árbol donde están los HTML: la raíz si tiene archivos .html,
+     * o la única carpeta de primer nivel (ignorando __MACOSX).
+     */
+    static FileTree resolveSubmissionRoot(FileTree tree) throws IOException {
+        Set<String> topLevelDirectories = new LinkedHashSet<>();
+        for (String path : tree.paths()) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                if (path.endsWith(".html")) {
+                    return tree;
+                }
+            } else {
+                String directory = path.substring(0, slash);
+                if (!directory.equals("__MACOSX")) {
+                    topLevelDirectories.add(directory);
+                }
+            }
+        }
+        if (topLevelDirectories.size() == 1) {
+            return tree.subtree(topLevelDirectories.iterator().next());
+        }
+        throw new IOException("Expected HTML files at the root or a single valid folder within the submission.");
+    }
+}
@@ -0,0 +1,310 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corrige los archivos comprimidos de un directorio de alumno: caché, extracción y validación.
+ * Cada archivo tiene un tiempo máximo y las fallas transitorias se reintentan.
+ * Es seguro usar una misma instancia desde varios hilos.
+ */
+public class Grader {
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "submission-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final GradingOptions options;
+    private final ResultCache cache;
+    private final GradingMetrics metrics;
+    private final SimilarityIndex similarity;
+
+    public Grader(GradingOptions options, ResultCache cache, GradingMetrics metrics) {
+        this(options, cache, metrics, null);
+    }
+
+    public Grader(GradingOptions options, ResultCache cache, GradingMetrics metrics, SimilarityIndex similarity) {
+        this.options = options;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.similarity = similarity;
+    }
+
+    /**
+     * Corrige los comprimidos del directorio. Siempre devuelve al menos una fila por alumno: las entregas
+     * que no se pudieron corregir quedan como {@link GradingResult#failure} con la causa.
+     */
+    public List<GradingResult> gradeDirectory(File dir) {
+        return gradeDirectory(dir, () -> { });
+    }
+
+    /** Igual que {@link #gradeDirectory(File)}, avisando a progress después de cada intento sobre un comprimido. */
+    public List<GradingResult> gradeDirectory(File dir, Runnable progress) {
+        List<GradingResult> results = new ArrayList<>();
+        // Se reconocen los comprimidos por su contenido, no por la extensión
+        File[] files = dir.listFiles(file -> ArchiveType.detect(file) != null);
+        if (files == null || files.length == 0) {
+            String error = files == null ? "no se pudo leer el directorio" : "no se encontró un archivo comprimido";
+            System.out.println("Error processing directory " + dir.getName() + ": " + error);
+            results.add(GradingResult.failure(dir.getName(), "", error, SubmissionMetrics.none()));
+            return results;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files) {
+            SubmissionMetrics submission = new SubmissionMetrics(dir.getName() + "/" + file.getName());
+            long start = System.nanoTime();
+            try {
+                results.add(new GradingResult(dir.getName(), file.getName(), gradeWithRetries(file, submission, progress), submission));
+            } catch (Exception e) {
+                metrics.recordFailure(e);
+                System.out.println("Error processing " + submission.name + ": " + e.getMessage());
+                results.add(GradingResult.failure(dir.getName(), file.getName(), describe(e), submission));
+            } finally {
+                submission.totalNanos = System.nanoTime() - start;
+                metrics.finish(submission);
+            }
+        }
+        return results;
+    }
+
+    /** Reintenta las fallas transitorias, esperando el doble cada vez. Cada intento termina avisando a progress. */
+    private Score gradeWithRetries(File file, SubmissionMetrics submission, Runnable progress) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Score score = gradeWithTimeout(file, submission);
+                progress.run();
+                return score;
+            } catch (IOException e) {
+                progress.run();
+                if (attempt >= options.maxAttempts || !isTransient(e, options.retryTimeouts)) {
+                    throw e;
+                }
+                long delay = options.retryBackoffMillis << (attempt - 1);
+                System.out.println("Retrying " + submission.name + " in " + delay + " ms: " + e.getMessage());
+                submission.retries++;
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Corrige el archivo interrumpiendo el hilo si supera el tiempo máximo. La interrupción corta el 7z externo,
+     * las copias a disco y las lecturas de la entrega. Una nota calculada después del aviso no se usa: la
+     * interrupción pudo cerrar un archivo a medio leer y dejar una página sin corregir.
+     */
+    private Score gradeWithTimeout(File file, SubmissionMetrics submission) throws IOException {
+        Deadline deadline = new Deadline(Thread.currentThread());
+        ScheduledFuture<?> alarm = WATCHDOG.schedule(deadline::expire, options.submissionTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            Score score = gradeArchive(file, submission, deadline);
+            if (deadline.expired()) {
+                throw timeout(null);
+            }
+            return score;
+        } catch (IOException e) {
+            if (deadline.expired() && !(e instanceof SubmissionTimeoutException)) {
+                throw timeout(e);
+            }
+            throw e;
+        } finally {
+            alarm.cancel(false);
+            deadline.finish();
+        }
+    }
+
+    private SubmissionTimeoutException timeout(Throwable cause) {
+        return new SubmissionTimeoutException("Grading exceeded " + options.submissionTimeoutMillis + " ms", cause);
+    }
+
+    /**
+     * Aviso de tiempo agotado de un archivo. La interrupción y su limpieza usan el mismo lock, así un aviso
+     * tardío nunca interrumpe al hilo cuando ya está corrigiendo otra entrega.
+     */
+    private static final class Deadline {
+        private final Thread thread;
+        private boolean expired;
+        private boolean finished;
+
+        Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void expire() {
+            if (!finished) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        synchronized boolean expired() {
+            return expired;
+        }
+
+        /** Lo llama el hilo que corrige al terminar: desde aquí el aviso ya no tiene efecto. */
+        synchronized void finish() {
+            finished = true;
+            if (expired) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Fallas que pueden no repetirse: errores del sistema de archivos (por ejemplo un archivo bloqueado) y,
+     * solo si retryTimeouts, el tiempo agotado; una entrega que se cuelga suele volver a colgarse.
+     */
+    static boolean isTransient(Throwable e, boolean retryTimeouts) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnsafeArchiveException || cause instanceof NoSuchFileException) {
+                return false;
+            }
+            if (cause instanceof SubmissionTimeoutException) {
+                return retryTimeouts;
+            }
+            if (cause instanceof FileSystemException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String describe(Exception e) {
+        if (e instanceof SubmissionTimeoutException) {
+            long timeout = options.submissionTimeoutMillis;
+            return "se superó el tiempo máximo de " + (timeout < 1000 ? timeout + " ms" : timeout / 1000 + " s");
+        }
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    private Score gradeArchive(File file, SubmissionMetrics submission, Deadline deadline) throws IOException {
+        if (cache == null && similarity == null) {
+            return extractAndProcessFile(file, submission).score;
+        }
+        // Las entregas que no cambiaron desde la última corrida no se vuelven a corregir
+        String archiveHash = ResultCache.hash(file);
+        Score score = cache == null ? null : cache.get(archiveHash);
+        // Si la nota está en caché pero falta la huella para el detector de copias, se corrige de nuevo
+        if (score != null && (similarity == null || similarity.reuse(submission.name, archiveHash))) {
+            submission.cached = true;
+            return score;
+        }
+        Graded graded = extractAndProcessFile(file, submission);
+        // Una nota calculada con el tiempo agotado puede venir de lecturas cortadas: no se guarda, y su huella
+        // tampoco entra al detector de copias
+        if (deadline.expired()) {
+            throw timeout(null);
+        }
+        if (cache != null) {
+            cache.put(archiveHash, graded.score);
+        }
+        if (graded.fingerprint != null && !graded.fingerprint.isEmpty()) {
+            long start = System.nanoTime();
+            similarity.add(submission.name, archiveHash, graded.fingerprint);
+            submission.record(Stage.SIMILARITY, start);
+        }
+        return graded.score;
+    }
+
+    private Graded extractAndProcessFile(File file, SubmissionMetrics submission) throws IOException {
+        if (options.inMemoryZip && ArchiveType.detect(file) == ArchiveType.ZIP) {
+            // Los ZIP se corrigen leyendo las entradas directamente, sin escribir nada en disco
+            ZipFileTree tree = openZipTree(file, submission);
+            if (tree != null) {
+                try (tree) {
+                    Graded graded = validate(tree, submission);
+                    tree.verify();
+                    return graded;
+                }
+            }
+        }
+
+        // Cada archivo se extrae en su propio directorio de trabajo, así los trabajos en paralelo no se pisan
+        File destDir = Files.createTempDirectory(options.workDir.toPath(), "corrector-").toFile();
+        try {
+            long start = System.nanoTime();
+            options.extractors.extract(file, destDir, submission);
+            submission.record(Stage.EXTRACTION, start);
+
+            DiskFileTree tree = new DiskFileTree(destDir);
+            for (String path : tree.paths()) {
+                submission.bytesExtracted += tree.size(path);
+            }
+            return validate(tree, submission);
+        } finally {
+            long start = System.nanoTime();
+            deleteFileOrDirectory(destDir);
+            submission.record(Stage.CLEANUP, start);
+        }
+    }
+
+    private ZipFileTree openZipTree(File file, SubmissionMetrics submission) throws IOException {
+        try {
+            return new ZipFileTree(file, options.extractionLimits);
+        } catch (UnsafeArchiveException e) {
+            throw e;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            submission.fallbacks++;
+            System.out.println("Unable to read zip in memory, extracting to disk instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Corrige la entrega y, si hay detector de copias, calcula su huella mientras los archivos siguen abiertos.
+     * La huella se agrega al índice recién cuando la nota se acepta.
+     */
+    private Graded validate(FileTree tree, SubmissionMetrics submission) throws IOException {
+        // Identificar si los archivos HTML están en la raíz o en una subcarpeta
+        HTMLValidator validator = new HTMLValidator(FileTree.resolveSubmissionRoot(tree), submission);
+        Score score = validator.validate();
+        SubmissionFingerprint fingerprint = null;
+        if (similarity != null) {
+            long start = System.nanoTime();
+            fingerprint = validator.fingerprint();
+            submission.record(Stage.SIMILARITY, start);
+        }
+        return new Graded(score, fingerprint);
+    }
+
+    /** Nota de una entrega y su huella para el detector de copias (null si no se calcula). */
+    private static final class Graded {
+        final Score score;
+        final SubmissionFingerprint fingerprint;
+
+        Graded(Score score, SubmissionFingerprint fingerprint) {
+            this.score = score;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    // Método de utilidad para eliminar archivos y directorios
+    // Utiliza recursividad para eliminar directorios no vacíos
+    static void deleteFileOrDirectory(File fileOrDirectoryToDelete) {
+        if (fileOrDirectoryToDelete.isDirectory()) {
+            File[] allContents = fileOrDirectoryToDelete.listFiles();
+            if (allContents != null) {
+                for (File file : allContents) {
+                    deleteFileOrDirectory(file);
+                }
+            }
+        }
+        if (!fileOrDirectoryToDelete.delete()) {
+            System.err.println("Unable to delete file or directory: " + fileOrDirectoryToDelete.getAbsolutePath());
+        }
+    }
+}
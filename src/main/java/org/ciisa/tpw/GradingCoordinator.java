@@ -0,0 +1,130 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinador de una corrida repartida entre varios procesos trabajadores en la misma máquina.
+ *
+ * <p>Divide los directorios de alumno en unidades de una {@link WorkQueue}, lanza los trabajadores
+ * ({@link App} con {@code --worker}) con el mismo classpath, vuelve a encolar las unidades cuyo trabajador
+ * murió o se colgó, relanza trabajadores mientras queden unidades pendientes y al final junta los resultados
+ * en un solo archivo, ordenado por directorio igual que una corrida normal.</p>
+ *
+ * <p>Si la cola ya existe (una corrida anterior se interrumpió) se retoma sin volver a corregir las unidades
+ * terminadas. Para una corrida nueva hay que borrar el directorio de la cola.</p>
+ */
+public class GradingCoordinator {
+    private static final long POLL_MILLIS = 1000;
+
+    private final File rootDir;
+    private final File queueDir;
+    private final GradingOptions options;
+    private final int workers;
+    private final int unitSize;
+    private final long unitTimeoutMillis;
+    private final int maxAttempts;
+    private int startedWorkers;
+
+    public GradingCoordinator(File rootDir, GradingOptions options) {
+        this.rootDir = rootDir;
+        this.options = options;
+        this.queueDir = new File(System.getProperty("corrector.queue", "corrector-queue"));
+        this.workers = Math.max(1, Integer.getInteger("corrector.workers", 2));
+        this.unitSize = Math.max(1, Integer.getInteger("corrector.queue.unitSize", 10));
+        // Sin avance de un trabajador por este tiempo, su unidad vuelve a pending. El trabajador late después de
+        // cada intento, así que por omisión alcanza para un intento completo más la espera antes del último
+        long attemptMillis = options.submissionTimeoutMillis + (options.retryBackoffMillis << (options.maxAttempts - 1));
+        this.unitTimeoutMillis = Long.getLong("corrector.queue.timeoutMs", Math.max(10 * 60 * 1000, attemptMillis + 60 * 1000));
+        this.maxAttempts = Math.max(1, Integer.getInteger("corrector.queue.maxAttempts", 3));
+    }
+
+    public void run() throws IOException, InterruptedException {
+        WorkQueue queue = new WorkQueue(queueDir);
+        if (queue.isInitialized()) {
+            System.out.println("Resuming work queue " + queueDir.getAbsolutePath());
+        } else {
+            File[] directories = rootDir.listFiles(File::isDirectory);
+            if (directories == null) {
+                throw new IOException("Unable to list student directories in " + rootDir.getAbsolutePath());
+            }
+            Arrays.sort(directories, Comparator.comparing(File::getName));
+            queue.partition(directories, unitSize);
+        }
+
+        File logDir = new File(queueDir, "logs");
+        Files.createDirectories(logDir.toPath());
+        // Cada trabajador ocupa un lugar fijo; uno relanzado reutiliza la caché y el log del anterior
+        Process[] slots = new Process[workers];
+        try {
+            while (queue.pendingUnits() + queue.claimedUnits() > 0) {
+                queue.requeueStale(unitTimeoutMillis, maxAttempts);
+                for (int slot = 0; slot < slots.length; slot++) {
+                    Process process = slots[slot];
+                    if (process != null && !process.isAlive()) {
+                        if (process.exitValue() != 0) {
+                            System.out.println("Worker " + process.pid() + " exited with code " + process.exitValue());
+                        }
+                        slots[slot] = null;
+                    }
+                    if (slots[slot] == null && queue.pendingUnits() > 0) {
+                        slots[slot] = startWorker(logDir, slot);
+                    }
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        } finally {
+            for (Process process : slots) {
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+        }
+
+        ResultStore store = new ResultStore(options.outputPath);
+        queue.collect(store);
+        // Los alumnos de las unidades que agotaron sus intentos igual quedan en la salida, con la causa
+        for (File dir : queue.failedDirectories()) {
+            System.out.println("Unable to grade " + dir.getName() + " after " + maxAttempts + " attempts");
+            String error = "el trabajador no terminó la unidad después de " + maxAttempts + " intentos";
+            store.update(dir.getName(), List.of(GradingResult.failure(dir.getName(), "", error, SubmissionMetrics.none())));
+        }
+        store.write();
+    }
+
+    /** Lanza un trabajador con la misma JVM, classpath y propiedades {@code corrector.*} que el coordinador. */
+    private Process startWorker(File logDir, int slot) throws IOException {
+        String java = ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String key = property.getKey().toString();
+            // Cada trabajador usa su propia caché: varios procesos no pueden compactar el mismo archivo
+            if (key.startsWith("corrector.") && !key.equals("corrector.cache") && !key.startsWith("corrector.metrics")) {
+                command.add("-D" + key + "=" + property.getValue());
+            }
+        }
+        command.add("-Dcorrector.cache=" + (options.cacheFile == null ? "none" : options.cacheFile.getPath() + "." + slot));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(App.class.getName());
+        command.add("--worker");
+        command.add(queueDir.getAbsolutePath());
+
+        File log = new File(logDir, "worker-" + slot + ".log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        startedWorkers++;
+        System.out.println("Started worker " + process.pid() + " in slot " + slot + " (" + startedWorkers + " started so far)");
+        return process;
+    }
+}
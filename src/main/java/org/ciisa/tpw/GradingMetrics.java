@@ -0,0 +1,128 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una corrida completa: junta las {@link SubmissionMetrics} de cada entrega y al final
+ * imprime p50/p95/max por etapa, las entregas más lentas y los contadores globales.
+ */
+public class GradingMetrics {
+    private final List<SubmissionMetrics> submissions = new ArrayList<>();
+    private final Map<String, LongAdder> failures = new TreeMap<>();
+    private final LongAdder bytesExtracted = new LongAdder();
+    private final LongAdder filesParsed = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    public synchronized void finish(SubmissionMetrics submission) {
+        submissions.add(submission);
+        bytesExtracted.add(submission.bytesExtracted);
+        filesParsed.add(submission.filesParsed);
+        fallbacks.add(submission.fallbacks);
+        retries.add(submission.retries);
+        if (submission.cached) {
+            cacheHits.increment();
+        }
+    }
+
+    /** Registra una falla agrupada por su causa (tipo de excepción). */
+    public synchronized void recordFailure(Throwable cause) {
+        failures.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    public synchronized void printSummary(PrintStream out, int slowest) {
+        out.printf("Corrida: %d entregas en %.1f s%n", submissions.size(), (System.nanoTime() - startNanos) / 1e9);
+        out.printf("%-15s %10s %10s %10s%n", "etapa", "p50 ms", "p95 ms", "max ms");
+        for (Stage stage : Stage.values()) {
+            long[] values = stageValues(stage);
+            out.printf("%-15s %10.1f %10.1f %10.1f%n", stage, millis(percentile(values, 50)),
+                    millis(percentile(values, 95)), millis(percentile(values, 100)));
+        }
+        out.printf("Bytes extraídos: %d, archivos HTML parseados: %d, fallbacks de extracción: %d, notas desde caché: %d, reintentos: %d%n",
+                bytesExtracted.sum(), filesParsed.sum(), fallbacks.sum(), cacheHits.sum(), retries.sum());
+        StyleSheetCache styles = StyleSheetCache.shared();
+        out.printf("Hojas de estilo parseadas: %d, reutilizadas desde caché: %d%n", styles.misses(), styles.hits());
+        failures.forEach((cause, count) -> out.printf("Fallas por %s: %d%n", cause, count.sum()));
+
+        out.println("Entregas más lentas:");
+        for (SubmissionMetrics submission : slowest(slowest)) {
+            out.printf("  %8.1f ms  %s%n", millis(submission.totalNanos), submission.name);
+        }
+    }
+
+    /** Vuelca todas las métricas en JSON para procesarlas con otras herramientas. */
+    public synchronized void writeJson(String path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            writer.write("{\"stages\":{");
+            Stage[] stages = Stage.values();
+            for (int i = 0; i < stages.length; i++) {
+                long[] values = stageValues(stages[i]);
+                writer.write(String.format("%s\"%s\":{\"p50\":%d,\"p95\":%d,\"max\":%d}", i == 0 ? "" : ",",
+                        stages[i], percentile(values, 50), percentile(values, 95), percentile(values, 100)));
+            }
+            writer.write(String.format("},\"counters\":{\"bytesExtracted\":%d,\"filesParsed\":%d,\"fallbacks\":%d,\"cacheHits\":%d,\"retries\":%d,"
+                    + "\"styleSheetsParsed\":%d,\"styleSheetCacheHits\":%d},",
+                    bytesExtracted.sum(), filesParsed.sum(), fallbacks.sum(), cacheHits.sum(), retries.sum(),
+                    StyleSheetCache.shared().misses(), StyleSheetCache.shared().hits()));
+            writer.write("\"failures\":{");
+            boolean first = true;
+            for (Map.Entry<String, LongAdder> failure : failures.entrySet()) {
+                writer.write((first ? "" : ",") + "\"" + failure.getKey() + "\":" + failure.getValue().sum());
+                first = false;
+            }
+            writer.write("},\"submissions\":[");
+            for (int i = 0; i < submissions.size(); i++) {
+                SubmissionMetrics submission = submissions.get(i);
+                writer.write((i == 0 ? "" : ",") + "{\"name\":\"" + submission.name.replace("\\", "\\\\").replace("\"", "\\\"")
+                        + "\",\"totalNanos\":" + submission.totalNanos + ",\"cached\":" + submission.cached);
+                for (Stage stage : stages) {
+                    writer.write(",\"" + stage + "\":" + submission.nanos(stage));
+                }
+                writer.write("}");
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    private List<SubmissionMetrics> slowest(int count) {
+        List<SubmissionMetrics> sorted = new ArrayList<>(submissions);
+        sorted.sort(Comparator.comparingLong((SubmissionMetrics s) -> s.totalNanos).reversed());
+        return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    private long[] stageValues(Stage stage) {
+        long[] values = new long[submissions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = submissions.get(i).nanos(stage);
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    // Percentil por rango más cercano sobre valores ya ordenados
+    private static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
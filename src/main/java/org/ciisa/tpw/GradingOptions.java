@@ -0,0 +1,124 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opciones de ejecución de una corrida de corrección.
+ * Se leen desde propiedades del sistema, por ejemplo {@code -Dcorrector.threads=8}.
+ */
+public class GradingOptions {
+    // Cantidad de alumnos que se corrigen en paralelo
+    final int threads;
+    // Si es verdadero se usa un hilo virtual por alumno en lugar de un pool fijo
+    final boolean virtualThreads;
+    // Directorio donde se crean los directorios de trabajo aislados de cada alumno
+    final File workDir;
+    final String outputPath;
+    // Los ZIP se leen en memoria en lugar de extraerse al directorio de trabajo
+    final boolean inMemoryZip;
+    final ArchiveExtractors extractors;
+    // Límites de la extracción (tamaño, cantidad de archivos) comunes a todos los extractores
+    final ExtractionLimits extractionLimits;
+    // Archivo de la caché de notas; null si la caché está deshabilitada
+    final File cacheFile;
+    // Archivo JSON donde se vuelcan las métricas de la corrida; null para no generarlo
+    final String metricsPath;
+    // Cantidad de entregas más lentas que se listan en el resumen
+    final int slowestReported;
+    // En modo vigilancia, tiempo sin cambios antes de corregir una entrega recién subida
+    final long watchDebounceMillis;
+    // Índice de firmas del detector de copias; null si el detector está deshabilitado
+    final File similarityIndexFile;
+    // Archivo CSV con los pares de entregas sospechosamente parecidas
+    final String similarityOutputPath;
+    // Tiempo máximo para corregir un archivo comprimido
+    final long submissionTimeoutMillis;
+    // Intentos por archivo ante fallas transitorias, y espera antes del primer reintento
+    final int maxAttempts;
+    final long retryBackoffMillis;
+    // Si los archivos que superan el tiempo máximo se reintentan; cada intento puede costar el tiempo completo
+    final boolean retryTimeouts;
+
+    GradingOptions(int threads, boolean virtualThreads, File workDir, String outputPath, boolean inMemoryZip,
+                   ArchiveExtractors extractors, ExtractionLimits extractionLimits, File cacheFile, String metricsPath,
+                   int slowestReported, long watchDebounceMillis, File similarityIndexFile, String similarityOutputPath,
+                   long submissionTimeoutMillis, int maxAttempts, long retryBackoffMillis, boolean retryTimeouts) {
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+        this.workDir = workDir;
+        this.outputPath = outputPath;
+        this.inMemoryZip = inMemoryZip;
+        this.extractors = extractors;
+        this.extractionLimits = extractionLimits;
+        this.cacheFile = cacheFile;
+        this.metricsPath = metricsPath;
+        this.slowestReported = slowestReported;
+        this.watchDebounceMillis = watchDebounceMillis;
+        this.similarityIndexFile = similarityIndexFile;
+        this.similarityOutputPath = similarityOutputPath;
+        this.submissionTimeoutMillis = submissionTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retryTimeouts = retryTimeouts;
+    }
+
+    public static GradingOptions fromSystemProperties() {
+        int threads = Integer.getInteger("corrector.threads", Runtime.getRuntime().availableProcessors());
+        boolean virtualThreads = Boolean.getBoolean("corrector.virtualThreads");
+        File workDir = new File(System.getProperty("corrector.workDir", System.getProperty("java.io.tmpdir")));
+        String outputPath = System.getProperty("corrector.output", "output.csv");
+        boolean inMemoryZip = Boolean.parseBoolean(System.getProperty("corrector.zip.inMemory", "true"));
+        // El binario 7z externo solo se usa si ningún extractor interno pudo con el archivo
+        boolean external7z = Boolean.parseBoolean(System.getProperty("corrector.external7z", "true"));
+        String cachePath = System.getProperty("corrector.cache", "corrector-cache.tsv");
+        ExtractionLimits extractionLimits = ExtractionLimits.fromSystemProperties();
+        File cacheFile = cachePath.equals("none") ? null : new File(cachePath);
+        String similarityPath = System.getProperty("corrector.similarity.index", "similarity-index.tsv");
+        File similarityIndexFile = similarityPath.equals("none") ? null : new File(similarityPath);
+        return new GradingOptions(Math.max(1, threads), virtualThreads, workDir, outputPath, inMemoryZip,
+                ArchiveExtractors.defaultChain(external7z, extractionLimits), extractionLimits, cacheFile,
+                System.getProperty("corrector.metrics"), Integer.getInteger("corrector.metrics.slowest", 10),
+                Long.getLong("corrector.watch.debounceMs", 5000), similarityIndexFile,
+                System.getProperty("corrector.similarity.output", "similarity.csv"),
+                Long.getLong("corrector.submission.timeoutMs", 5 * 60 * 1000),
+                Math.max(1, Integer.getInteger("corrector.submission.maxAttempts", 3)),
+                Long.getLong("corrector.submission.backoffMs", 1000),
+                Boolean.getBoolean("corrector.submission.retryTimeouts"));
+    }
+
+    /** Abre la caché de notas, o devuelve null si está deshabilitada. */
+    ResultCache openCache() throws IOException {
+        if (cacheFile == null) {
+            return null;
+        }
+        int maxAgeDays = Integer.getInteger("corrector.cache.maxAgeDays", 365);
+        int maxEntries = Integer.getInteger("corrector.cache.maxEntries", 50_000);
+        return new ResultCache(cacheFile, Rubric.defaultRubric().version() + "-" + HTMLValidator.scoringSettings(),
+                maxAgeDays, maxEntries);
+    }
+
+    /**
+     * Abre el índice del detector de copias, o devuelve null si está deshabilitado.
+     * Las entregas se agrupan por semestre ({@code corrector.similarity.term}) para poder compararlas entre semestres.
+     */
+    SimilarityIndex openSimilarityIndex() throws IOException {
+        if (similarityIndexFile == null) {
+            return null;
+        }
+        return new SimilarityIndex(similarityIndexFile, System.getProperty("corrector.similarity.term", "actual"));
+    }
+
+    double similarityThreshold() {
+        return Double.parseDouble(System.getProperty("corrector.similarity.threshold", "0.6"));
+    }
+
+    ExecutorService createExecutor() {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
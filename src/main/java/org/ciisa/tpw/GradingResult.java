@@ -0,0 +1,69 @@
+package org.ciisa.tpw;
+
+/**
+ * Resultado de corregir un archivo comprimido de un alumno.
+ */
+public class GradingResult {
+    final String dirName;
+    final String archiveName;
+    final Score score;
+    final SubmissionMetrics metrics;
+    // Causa por la que no se pudo corregir la entrega; null si se corrigió
+    final String error;
+
+    GradingResult(String dirName, String archiveName, Score score) {
+        this(dirName, archiveName, score, SubmissionMetrics.none());
+    }
+
+    GradingResult(String dirName, String archiveName, Score score, SubmissionMetrics metrics) {
+        this(dirName, archiveName, score, metrics, null);
+    }
+
+    GradingResult(String dirName, String archiveName, Score score, SubmissionMetrics metrics, String error) {
+        this.dirName = dirName;
+        this.archiveName = archiveName;
+        this.score = score;
+        this.metrics = metrics;
+        this.error = error;
+    }
+
+    /**
+     * Fila para una entrega que no se pudo corregir: notas en 0 y la causa en los comentarios,
+     * así el alumno igual aparece en la salida.
+     */
+    static GradingResult failure(String dirName, String archiveName, String error, SubmissionMetrics metrics) {
+        Score score = new Score();
+        score.comentarios = "Nota sección general: 0. No se pudo corregir la entrega (" + error + ").";
+        return new GradingResult(dirName, archiveName, score, metrics, error);
+    }
+
+    /**
+     * Nombre, 2do nombre, primer apellido y 2do apellido a partir del nombre del directorio
+     * ("Nombre Apellido Apellido_123_assignsubmission_file_"). Con solo tres nombres el 2do nombre queda vacío.
+     */
+    static String[] nameComponents(String dirName) {
+        int underscore = dirName.indexOf('_');
+        String fullName = underscore < 0 ? dirName : dirName.substring(0, underscore);
+
+        String[] parts = new String[4];
+        int count = 0;
+        int start = 0;
+        while (count < parts.length && start <= fullName.length()) {
+            int space = fullName.indexOf(' ', start);
+            int end = space < 0 ? fullName.length() : space;
+            parts[count++] = fullName.substring(start, end);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+
+        if (count == 3) {
+            return new String[]{parts[0], "", parts[1], parts[2]};
+        }
+        for (int i = count; i < parts.length; i++) {
+            parts[i] = "";
+        }
+        return parts;
+    }
+}
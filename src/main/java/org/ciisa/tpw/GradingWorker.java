@@ -0,0 +1,70 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Proceso trabajador: toma unidades de la {@link WorkQueue} hasta que no quedan pendientes.
+ * Se puede matar y volver a lanzar en cualquier momento; las unidades terminadas ya quedaron en la cola
+ * y la que estaba a medias vuelve a pending cuando el coordinador nota que dejó de recibir latidos.
+ *
+ * <p>El latido lo da el propio avance de la corrección (cada intento sobre un comprimido), no un reloj aparte:
+ * un trabajador vivo pero colgado deja de latir y su unidad se reintenta. Por eso el tiempo de espera de
+ * la cola tiene que ser mayor que lo que puede tardar un intento (ver {@link GradingCoordinator}).</p>
+ */
+public class GradingWorker {
+    private final WorkQueue queue;
+    private final Grader grader;
+    private final GradingOptions options;
+
+    public GradingWorker(WorkQueue queue, Grader grader, GradingOptions options) {
+        this.queue = queue;
+        this.grader = grader;
+        this.options = options;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        ExecutorService executor = options.createExecutor();
+        try {
+            WorkQueue.Unit unit;
+            while ((unit = queue.claim()) != null) {
+                queue.complete(unit.name, grade(unit, executor));
+                System.out.println("Completed unit " + unit.name + " (" + unit.directories.size() + " directories)");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<GradingResult> grade(WorkQueue.Unit unit, ExecutorService executor) throws IOException, InterruptedException {
+        List<Future<List<GradingResult>>> pending = new ArrayList<>();
+        for (File dir : unit.directories) {
+            // Cada intento sobre un comprimido renueva la unidad, así un directorio con muchos no la deja vencer
+            pending.add(executor.submit(() -> grader.gradeDirectory(dir, () -> heartbeat(unit))));
+        }
+        List<GradingResult> results = new ArrayList<>();
+        for (Future<List<GradingResult>> future : pending) {
+            try {
+                results.addAll(future.get());
+            } catch (ExecutionException e) {
+                // La unidad queda en claimed y el coordinador la reintenta
+                throw new IOException("Unable to grade unit " + unit.name, e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private void heartbeat(WorkQueue.Unit unit) {
+        try {
+            queue.heartbeat(unit.name);
+        } catch (IOException e) {
+            // Un latido perdido no detiene la corrección; si se pierden todos, el coordinador reintenta la unidad
+            System.out.println("Unable to renew unit " + unit.name + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,58 +1,161 @@
 package org.ciisa.tpw;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.jsoup.parser.ParseErrorList;
+import org.jsoup.parser.Parser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 public class HTMLValidator {
-    private final File directory;
+    // Cantidad de errores de sintaxis que se registran por archivo
+    private static final int TRACKED_PARSE_ERRORS = 100;
+    // Sobre este número de errores en un mismo archivo la nota html queda en 0
+    private static final int MAX_PARSE_ERRORS = Integer.getInteger("corrector.html.maxParseErrors", 20);
+    // Tamaño máximo que se parsea de cada página; el resto del archivo se ignora
+    private static final long MAX_PAGE_BYTES = Long.getLong("corrector.html.maxBytes", 2 * 1024 * 1024);
+    // Tamaño máximo que se lee de cada hoja de estilos
+    private static final long MAX_STYLESHEET_BYTES = Long.getLong("corrector.css.maxBytes", 512 * 1024);
+
+    private final FileTree files;
+    private final SubmissionMetrics metrics;
+    private Rubric rubric;
     private final Map<String, Document> documents = new HashMap<>();
+    private final Map<String, ParseErrorList> parseErrors = new HashMap<>();
     private final Map<String, Integer> scores = new HashMap<>();
     private final Map<String, String> comments = new HashMap<>();
+    // Hojas de estilo enlazadas, por ruta: un styles.css usado por las tres páginas se lee una sola vez
+    private final Map<String, StyleSheet> styleSheets = new HashMap<>();
+    private final StyleSheetCache styleSheetCache = StyleSheetCache.shared();
+    private AssetIndex assets;
+    private LinkGraph linkGraph;
+    // Páginas a las que no se llega desde inicio o desde las que no se vuelve
+    private Set<String> incompleteNavigation;
     private boolean isValidSyntax = false;
 
+    /**
+     * Propiedades de la corrida que cambian las notas; van en la clave de {@link ResultCache} junto con la
+     * versión de la rúbrica, así cambiar un límite no deja en caché notas calculadas con el anterior.
+     */
+    static String scoringSettings() {
+        return "maxParseErrors=" + MAX_PARSE_ERRORS + ",maxBytes=" + MAX_PAGE_BYTES
+                + ",cssMaxBytes=" + MAX_STYLESHEET_BYTES + ",cssMaxSelectors=" + StyleSheet.MAX_SELECTORS;
+    }
+
     public HTMLValidator(File directory) {
-        this.directory = directory;
+        this(new DiskFileTree(directory));
+    }
+
+    public HTMLValidator(FileTree files) {
+        this(files, SubmissionMetrics.none());
+    }
+
+    public HTMLValidator(FileTree files, SubmissionMetrics metrics) {
+        this.files = files;
+        this.metrics = metrics;
     }
 
     public Score validate() throws IOException {
-        File[] htmlFiles = directory.listFiles((d, name) -> name.endsWith(".html"));
-        if (htmlFiles == null || htmlFiles.length < 3) {
+        List<String> allPaths = files.paths();
+        String[] htmlFiles = allPaths.stream()
+                .filter(path -> path.indexOf('/') < 0 && path.endsWith(".html"))
+                .toArray(String[]::new);
+        if (htmlFiles.length < 3) {
             comments.put("general", "No responde a la consigna de tener 3 archivos html");
             scores.put("general",0);
             return createZeroScore();
         }
+        rubric = Rubric.defaultRubric();
+        long start = System.nanoTime();
+        assets = new AssetIndex(files);
+        metrics.record(Stage.GALLERY_ASSETS, start);
+
+        // Leer cada página con una lectura rápida, sin construir el DOM
+        isValidSyntax = true;
+        start = System.nanoTime();
+        Map<String, PageFeatures> summaries = new LinkedHashMap<>();
+        for (String htmlFile : htmlFiles) {
+            try (InputStream in = files.open(htmlFile)) {
+                summaries.put(htmlFile, PageScanner.scan(in));
+            } catch (IOException e) {
+                rethrowIfAborted(e);
+                comments.put(htmlFile, "No se pudo leer el archivo: " + e.getMessage());
+                scores.put(htmlFile, 0);
+                isValidSyntax = false;
+            }
+        }
 
-        // Validate HTML syntax
-        isValidSyntax = isValidSyntax(htmlFiles);
-
-        // Load documents
-        for (File htmlFile : htmlFiles) {
-            Document document = Jsoup.parse(htmlFile, StandardCharsets.UTF_8.name());
-            documents.put(htmlFile.getName(), document);
+        // Un solo grafo con los enlaces de todas las páginas, y con él reconocer cada página
+        Map<String, List<String>> links = new LinkedHashMap<>();
+        summaries.forEach((htmlFile, summary) -> links.put(htmlFile, summary.linkTargets));
+        linkGraph = new LinkGraph(links, assets);
+        Map<String, Rubric.Page> pages = new HashMap<>();
+        String inicio = null;
+        for (Map.Entry<String, PageFeatures> entry : summaries.entrySet()) {
+            String htmlFile = entry.getKey();
+            PageFeatures summary = entry.getValue();
+            summary.internalLinks = linkGraph.internalLinks(htmlFile);
+            summary.brokenLinks = linkGraph.brokenLinks(htmlFile);
+            Rubric.Page page = rubric.classify(summary);
+            if (page == null) {
+                comments.put(htmlFile, "No se reconoce la pagina");
+                scores.put(htmlFile, 0);
+            } else {
+                pages.put(htmlFile, page);
+                if (inicio == null && page.section.equals("inicio")) {
+                    inicio = htmlFile;
+                }
+            }
         }
+        // Navegación completa: desde inicio se llega a todas las páginas reconocidas y desde todas se vuelve a inicio
+        incompleteNavigation = inicio == null ? pages.keySet() : linkGraph.incompleteNavigation(inicio, pages.keySet());
+        metrics.record(Stage.CLASSIFICATION, start);
+
+        // Load documents: solo las páginas reconocidas se parsean, una sola vez, registrando sus errores de sintaxis
+        start = System.nanoTime();
+        for (String htmlFile : pages.keySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while parsing " + htmlFile);
+            }
+            parseDocument(htmlFile);
+        }
+        recordParseErrors();
+        metrics.record(Stage.HTML_PARSE, start);
 
         // Validate documents
         for (Map.Entry<String, Document> entry : documents.entrySet()) {
             String filename = entry.getKey();
             Document doc = entry.getValue();
-            validateDocument(filename, doc);
+            validateDocument(filename, pages.get(filename), doc);
         }
 
         // Compile scores
         return compileScores();
     }
 
+    /**
+     * Huella de la entrega para el detector de copias; se calcula a partir de los documentos ya parseados
+     * por {@link #validate()}. Devuelve null si la entrega no llegó a parsearse.
+     */
+    public SubmissionFingerprint fingerprint() throws IOException {
+        if (assets == null) {
+            return null;
+        }
+        return SubmissionFingerprint.of(documents.values(), assets, files);
+    }
+
     // Método nuevo que crea un Score con todos los puntajes en 0 y los comentarios establecidos
     private Score createZeroScore() {
         Score score = new Score();
@@ -65,168 +168,144 @@ public class HTMLValidator {
         return score;
     }
 
-    private boolean isValidSyntax(File[] htmlFiles) {
-        for (File htmlFile : htmlFiles) {
-            try {
-                Jsoup.parse(htmlFile, StandardCharsets.UTF_8.name());
-            } catch (IOException e) {
-                return false;
+    private void recordParseErrors() {
+        StringBuilder summary = new StringBuilder();
+        String firstError = null;
+        for (Map.Entry<String, ParseErrorList> entry : parseErrors.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            summary.append(summary.length() == 0 ? "" : ", ")
+                    .append(entry.getKey()).append(": ").append(entry.getValue().size());
+            if (firstError == null) {
+                firstError = entry.getKey() + " " + entry.getValue().get(0);
             }
         }
-        return true;
-    }
-
-    private void validateDocument(String filename, Document doc) throws IOException {
-        Elements links = doc.select("a[href]");
-        boolean linksValid = links.stream().anyMatch(link -> documents.containsKey(link.attr("href")));
-
-        if (isContactoPage(doc)) {
-            scores.put("form", validateContactoPage(doc, linksValid));
-        } else if (isGaleriaPage(doc)) {
-            scores.put("galeria", validateGaleriaPage(doc));
-        } else if (isInicioPage(doc)) {
-            scores.put("inicio", validateInicioPage(doc));
-        } else {
-            comments.put(filename, "No se reconoce la pagina");
-            scores.put(filename, 0);
+        if (summary.length() > 0) {
+            comments.put("html", "Errores de sintaxis HTML (" + summary + "). Primer error: " + firstError + ".");
+            scores.put("html", isValidSyntax ? 1 : 0);
         }
     }
 
-    private boolean isInicioPage(Document doc) {
-        boolean hasLongText = doc.select("body").text().length() > 100;
-        boolean hasInicioOrHomeInTitle = doc.select("title").text().matches(".*\\b(Inicio|Home)\\b.*");
-
-        return hasLongText || hasInicioOrHomeInTitle;
+    /**
+     * Parsea una página reconocida. Las páginas de más de {@link #MAX_PAGE_BYTES} se parsean solo hasta ese
+     * tamaño, para que una entrega con un archivo enorme no agote la memoria de una corrida en paralelo:
+     * se corrige lo que alcanzó a leerse, sin revisar su sintaxis, y queda un comentario indicándolo.
+     * El corte se decide por los bytes realmente leídos; el tamaño declarado en un ZIP puede faltar o ser falso.
+     */
+    private void parseDocument(String htmlFile) throws IOException {
+        boolean truncated;
+        Parser parser = Parser.htmlParser().setTrackErrors(TRACKED_PARSE_ERRORS);
+        try (InputStream in = files.open(htmlFile)) {
+            BoundedInputStream bounded = new BoundedInputStream(in, MAX_PAGE_BYTES);
+            bounded.setPropagateClose(false);
+            CountingInputStream content = new CountingInputStream(bounded);
+            documents.put(htmlFile, Jsoup.parse(content, StandardCharsets.UTF_8.name(), "", parser));
+            truncated = content.getByteCount() >= MAX_PAGE_BYTES && in.read() != -1;
+        } catch (IOException e) {
+            rethrowIfAborted(e);
+            comments.put(htmlFile, "No se pudo leer el archivo: " + e.getMessage());
+            scores.put(htmlFile, 0);
+            isValidSyntax = false;
+            return;
+        }
+        metrics.filesParsed++;
+        if (truncated) {
+            System.out.println("Parsing only the first " + MAX_PAGE_BYTES + " bytes of " + htmlFile);
+            comments.put(htmlFile, "El archivo pesa más de " + MAX_PAGE_BYTES / 1024 + " KB; se corrigieron solo los primeros "
+                    + MAX_PAGE_BYTES / 1024 + " KB.");
+            scores.put(htmlFile, 0);
+            return;
+        }
+        parseErrors.put(htmlFile, parser.getErrors());
+        if (parser.getErrors().size() > MAX_PARSE_ERRORS) {
+            isValidSyntax = false;
+        }
     }
 
-    private boolean isGaleriaPage(Document doc) {
-        boolean hasImages = doc.select("img").size() >= 3;
+    private void validateDocument(String filename, Rubric.Page page, Document doc) throws IOException {
+        // Un solo recorrido del DOM junta todo lo que necesita el puntaje; los enlaces salen del grafo de la entrega
+        PageFeatures features = PageFeatures.collect(doc);
+        features.internalLinks = linkGraph.internalLinks(filename);
+        features.brokenLinks = linkGraph.brokenLinks(filename);
+        features.navComplete = incompleteNavigation.isEmpty();
+        features.unreachablePages = incompleteNavigation.size();
 
-        return hasImages;
-    }
-
-    private boolean isContactoPage(Document doc) {
-        boolean hasForm = !doc.select("form").isEmpty();
+        // Verificar que cada etiqueta de imagen con un src válido se corresponda con un archivo físico
+        long start = System.nanoTime();
+        for (String src : features.imageSources) {
+            if (src.isEmpty() || assets.findImage(src) == null) {
+                features.brokenImages++;
+            }
+        }
+        metrics.record(Stage.GALLERY_ASSETS, start);
 
-        return hasForm;
-    }
+        start = System.nanoTime();
+        analyzeStyles(filename, doc, features);
+        metrics.record(Stage.CSS, start);
 
-    private int validateInicioPage(Document doc) {
-        // Verificamos la existencia del documento HTML
-        boolean hasHtml = !doc.select("html").isEmpty();
-        boolean hasIntro = doc.body().text().length() > 100;
-        Elements paragraphs = doc.select("p");
-        Elements list = doc.select("ul, ol");
-        Elements menuLinks = doc.select("a[href]");
-        boolean hasMenuRedirection = menuLinks.size() > 2; // asumiendo que la redirección implica al menos 3 enlaces
-        // Puedes verificar la presencia de enlaces internos, pero no puedes verificar el estado de redirección con JSoup.
-        boolean hasCss = !doc.select("link[rel=stylesheet], style").isEmpty(); // Simple check for CSS
-        boolean isResponsive = !doc.select("meta[name=viewport]").isEmpty();  // Heuristic for responsivity check
-
-        // No podemos verificar con JSoup si el CSS es mínimo o si la página es creativa y original.
-        if (!hasHtml) {
-            comments.put("inicio", "No presenta evidencia de la construcción de un documento HTML para la página de inicio.");
-            return 0;
-        } else if (paragraphs.isEmpty() && list.isEmpty()) {
-            comments.put("inicio", "Se observa un intento básico de construir un documento HTML; sin etiquetas de párrafo y sin lista.");
-            return 13;
-        } else if (hasIntro && !hasMenuRedirection || doc.body().text().contains("Lorem ipsum")) {
-            comments.put("inicio", "Incluye estructura HTML, pero con errores y con introducción de la empresa con menos de 100 caracteres; así como también lista como menú principal sin redirección.");
-            return 16;
-        } else if (hasIntro && hasMenuRedirection) {
-            // En este punto suponemos que la estructura HTML es correcta porque hasHtml es verdadero y hay párrafos y listas, pero no podemos verificar la indentación o el uso mínimo de CSS
-            comments.put("inicio", "Incluye estructura HTML con introducción de la empresa con 100 o más caracteres y menú principal con redirección.");
-            return 24;
-        } else if (/*hasIntro && hasMenuRedirection &&*/ hasCss /*&& indentación correcta*/) {
-            // Agregue otra comprobación aquí si es posible verificar la indentación o el uso mínimo de CSS.
-            return 26;
-        }
-        // Si no se cumple ningún criterio, se asume el nivel más bajo
-        return 28;
+        Rubric.Tier tier = page.grade(features);
+        scores.put(page.section, tier == null ? 0 : tier.score);
+        if (tier != null && tier.comment != null) {
+            comments.put(page.section, tier.comment);
+        }
     }
 
-    private int validateGaleriaPage(Document doc) throws IOException {
-        Map<String, Boolean> imageFilesMap = new HashMap<>();
-        Files.walk(directory.toPath())
-                .filter(p -> p.toFile().isFile())
-                .filter(p -> p.toString().endsWith(".jpg") || p.toString().endsWith(".jpeg") ||
-                        p.toString().endsWith(".png") || p.toString().endsWith(".gif") ||
-                        p.toString().endsWith(".bmp") || p.toString().endsWith(".svg") ||
-                        p.toString().endsWith(".webp") || p.toString().endsWith(".avif"))
-                .forEach(p -> {
-                    String relativePath = directory.toPath().relativize(p).toString();
-                    String normalizedPath = normalizePath(relativePath);
-                    imageFilesMap.put(normalizedPath, Boolean.FALSE);
-                });
-
-        Elements images = doc.select("img");
-        boolean hasImages = !images.isEmpty();
+    /**
+     * Cuenta las reglas y media queries de las hojas de estilo de la página, enlazadas o en {@code <style>},
+     * y cuántos de sus selectores aplican a algún elemento. Las hojas externas (CDN) no se descargan.
+     */
+    private void analyzeStyles(String filename, Document doc, PageFeatures features) throws IOException {
+        Set<StyleSheet> sheets = new LinkedHashSet<>();
+        for (String href : features.stylesheetLinks) {
+            AssetIndex.Asset asset = AssetIndex.isLocalReference(href) ? assets.resolve(filename, href) : null;
+            if (asset != null) {
+                StyleSheet sheet = styleSheets.get(asset.path);
+                if (sheet == null) {
+                    sheet = loadStyleSheet(asset.path);
+                    styleSheets.put(asset.path, sheet);
+                }
+                sheets.add(sheet);
+            }
+        }
+        for (String css : features.inlineStyles) {
+            sheets.add(styleSheetCache.get(css.getBytes(StandardCharsets.UTF_8)));
+        }
 
-        // Verificar que cada etiqueta de imagen con un src válido se corresponda con un archivo físico
-        boolean hasErrors = images.stream().anyMatch(img -> {
-            String src = img.attr("src");
-            String normalizedSrc = normalizePath(src);
-            boolean fileExists = imageFilesMap.containsKey(normalizedSrc);  // Verificar si el src coincide con el archivo de imagen
-
-            return src.isEmpty() || !fileExists;       // Retorna true si alguna de las condiciones de error se cumple
-        });
-
-        boolean allImagesHaveAltText = images.stream().allMatch(img -> !img.attr("alt").isEmpty());
-
-        if (!hasImages) {
-            comments.put("galeria", "No presenta evidencia de imágenes dentro de la página web.");
-            return 0;
-        } else if (hasErrors) {
-            comments.put("galeria", "Implementación de etiquetas de imagen con errores.");
-            return 13;
-        } else if (images.size() < 4) {
-            comments.put("galeria", "Implementación de etiquetas de imagen sin alcanzar el mínimo de imágenes solicitadas.");
-            return 16;
-        } else if (!allImagesHaveAltText) {
-            comments.put("galeria", "Implementación correcta de etiquetas de imagen con referencia a un archivo local; pero sin rellenar el campo de texto alternativo.");
-            return 24;
-        } else {
-            return 26;
+        Set<String> selectors = new LinkedHashSet<>();
+        for (StyleSheet sheet : sheets) {
+            features.cssRules += sheet.rules;
+            features.mediaQueries += sheet.mediaQueries;
+            selectors.addAll(sheet.selectors);
+        }
+        for (String selector : selectors) {
+            if (StyleSheet.matches(selector, doc)) {
+                features.usedSelectors++;
+            } else {
+                features.unusedSelectors++;
+            }
         }
     }
 
-    // Helper method to normalize path strings for uniformity
-    private String normalizePath(String path) {
-        String normalizedPath = Paths.get(path).normalize().toString();
-        return normalizedPath.replace(File.separatorChar, '/');
+    private StyleSheet loadStyleSheet(String path) throws IOException {
+        try (InputStream in = new BoundedInputStream(files.open(path), MAX_STYLESHEET_BYTES)) {
+            return styleSheetCache.get(in.readAllBytes());
+        } catch (IOException e) {
+            rethrowIfAborted(e);
+            System.out.println("Unable to read stylesheet " + path + ": " + e.getMessage());
+            return StyleSheet.EMPTY;
+        }
     }
 
-    private int validateContactoPage(Document doc, boolean linksValid) {
-        Elements forms = doc.select("form");
-        Elements requiredFields = doc.select("input[required], select[required], textarea[required]");
-        int numberOfRequiredFields = requiredFields.size();
-        boolean hasBasicForm = !forms.isEmpty();
-
-        // Aquí se verifica si tiene todas las validaciones necesarias,
-        // si hasBasicForm es falso se asume que no hay formulario.
-        boolean hasAllValidations = hasBasicForm && forms.select("input[type=email], input[type=number], input[type=date]").size() > 0;
-
-        // Aquí se asumen que los campos descriptivos tienen la etiqueta "label" asociada.
-        boolean hasDescriptiveFields = hasBasicForm && forms.select("label").size() >= numberOfRequiredFields;
-
-        if (!hasBasicForm) {
-            comments.put("form", "No presenta evidencia de la construcción de un formulario web.");
-            return 0;
-        } else if (!hasAllValidations) {
-            if (numberOfRequiredFields < 3) {
-                comments.put("form", "Formulario incluido con menos de 3 campos requeridos.");
-                return 29;
-            } else {
-                comments.put("form", "Intento básico de construir un formulario web sin validaciones.");
-                return 19;
-            }
-        } else {
-            if (!hasDescriptiveFields) {
-                comments.put("form", "Formulario completo con todas las validaciones; pero los campos no son descriptivos.");
-                return 43;
-            } else {
-                return 48;
-            }
+    /**
+     * Una lectura cortada por el tiempo máximo (la interrupción cierra el archivo) o por los límites de la
+     * entrega no es un problema de la página: se propaga para que quien corrige la clasifique y no quede
+     * como una página ilegible con nota 0.
+     */
+    private static void rethrowIfAborted(IOException e) throws IOException {
+        if (e instanceof InterruptedIOException || e instanceof ClosedByInterruptException
+                || e instanceof UnsafeArchiveException || Thread.currentThread().isInterrupted()) {
+            throw e;
         }
     }
 
@@ -0,0 +1,89 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Escribe un objeto JSON por línea, el formato que recibe el importador del LMS.
+ */
+public class JsonLinesWriter implements ResultWriter {
+    private static final int FLUSH_EVERY = 25;
+
+    private final BufferedWriter writer;
+    private int pendingRows;
+
+    public JsonLinesWriter(String outputPath) throws IOException {
+        writer = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void writeHeader() {
+        // JSON Lines no tiene encabezado
+    }
+
+    @Override
+    public synchronized void write(GradingResult result) throws IOException {
+        String[] names = GradingResult.nameComponents(result.dirName);
+        Score score = result.score;
+        StringBuilder line = new StringBuilder(256);
+        line.append('{');
+        appendString(line, "directorio", result.dirName).append(',');
+        appendString(line, "archivo", result.archiveName).append(',');
+        appendString(line, "nombre", names[0]).append(',');
+        appendString(line, "segundoNombre", names[1]).append(',');
+        appendString(line, "primerApellido", names[2]).append(',');
+        appendString(line, "segundoApellido", names[3]).append(',');
+        appendNumber(line, "notaInicio", score.notaInicio).append(',');
+        appendNumber(line, "notaImagenes", score.notaImagenes).append(',');
+        appendNumber(line, "notaForm", score.notaForm).append(',');
+        appendNumber(line, "notaHtml", score.notaHtml).append(',');
+        appendNumber(line, "notaFinal", score.notaFinal).append(',');
+        appendString(line, "comentarios", score.comentarios).append(',');
+        appendString(line, "error", result.error);
+        line.append("}\n");
+        writer.write(line.toString());
+
+        if (++pendingRows >= FLUSH_EVERY) {
+            writer.flush();
+            pendingRows = 0;
+        }
+    }
+
+    private static StringBuilder appendNumber(StringBuilder line, String name, int value) {
+        return line.append('"').append(name).append("\":").append(value);
+    }
+
+    private static StringBuilder appendString(StringBuilder line, String name, String value) {
+        line.append('"').append(name).append("\":");
+        if (value == null) {
+            return line.append("null");
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        return line.append('"');
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
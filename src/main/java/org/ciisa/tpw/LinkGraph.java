@@ -0,0 +1,89 @@
+package org.ciisa.tpw;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grafo de enlaces entre las páginas de una entrega, construido una sola vez con los href de todas las páginas.
+ * Los href se resuelven contra el {@link AssetIndex} relativos a la página que los contiene, sin importar
+ * mayúsculas, anclas ni query ({@code ./contacto.html}, {@code Contacto.html#form}).
+ */
+public class LinkGraph {
+    private final Set<String> pages;
+    private final Map<String, Set<String>> outgoing = new HashMap<>();
+    private final Map<String, Set<String>> incoming = new HashMap<>();
+    private final Map<String, Integer> internalLinks = new HashMap<>();
+    private final Map<String, Integer> brokenLinks = new HashMap<>();
+
+    /** {@code links} son los href de cada página, en el orden en que aparecen. */
+    public LinkGraph(Map<String, List<String>> links, AssetIndex assets) {
+        this.pages = new LinkedHashSet<>(links.keySet());
+        for (Map.Entry<String, List<String>> page : links.entrySet()) {
+            int internal = 0;
+            int broken = 0;
+            for (String href : page.getValue()) {
+                if (!AssetIndex.isLocalReference(href)) {
+                    continue;
+                }
+                AssetIndex.Asset target = assets.resolve(page.getKey(), href);
+                if (target == null) {
+                    broken++;
+                } else if (pages.contains(target.path)) {
+                    internal++;
+                    outgoing.computeIfAbsent(page.getKey(), k -> new HashSet<>()).add(target.path);
+                    incoming.computeIfAbsent(target.path, k -> new HashSet<>()).add(page.getKey());
+                }
+            }
+            internalLinks.put(page.getKey(), internal);
+            brokenLinks.put(page.getKey(), broken);
+        }
+    }
+
+    /** Enlaces de la página a otras páginas de la entrega (incluida ella misma). */
+    public int internalLinks(String page) {
+        return internalLinks.getOrDefault(page, 0);
+    }
+
+    /** Enlaces locales de la página que no llevan a ningún archivo de la entrega. */
+    public int brokenLinks(String page) {
+        return brokenLinks.getOrDefault(page, 0);
+    }
+
+    /**
+     * Páginas de {@code within} a las que no se llega navegando desde start, o desde las que no se puede volver
+     * a start, recorriendo solo páginas de {@code within}. Vacío si la navegación está completa. Así una página
+     * suelta que no es parte de la consigna (una plantilla, una prueba) no cuenta como navegación incompleta.
+     */
+    public Set<String> incompleteNavigation(String start, Set<String> within) {
+        Set<String> forward = reachable(start, outgoing, within);
+        Set<String> backward = reachable(start, incoming, within);
+        Set<String> missing = new LinkedHashSet<>();
+        for (String page : pages) {
+            if (within.contains(page) && (!forward.contains(page) || !backward.contains(page))) {
+                missing.add(page);
+            }
+        }
+        return missing;
+    }
+
+    private static Set<String> reachable(String start, Map<String, Set<String>> edges, Set<String> within) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            for (String next : edges.getOrDefault(queue.poll(), Set.of())) {
+                if (within.contains(next) && visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return visited;
+    }
+}
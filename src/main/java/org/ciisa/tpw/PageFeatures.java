@@ -0,0 +1,224 @@
+package org.ciisa.tpw;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Características de una página que usan las reglas de la rúbrica. Se recolectan todas en un único
+ * recorrido del DOM, en lugar de un {@code doc.select(...)} por criterio.
+ */
+public class PageFeatures implements NodeVisitor {
+    /** Nombres que se pueden usar en las condiciones de la rúbrica. */
+    static final Set<String> NAMES = Set.of(
+            "htmlElements", "paragraphs", "lists", "links", "internalLinks", "forms", "requiredFields",
+            "validatedInputs", "formLabels", "images", "imagesWithoutAlt", "brokenImages", "stylesheets",
+            "viewport", "textLength", "titleInicio", "loremIpsum", "brokenLinks", "navComplete", "unreachablePages",
+            "cssRules", "mediaQueries", "usedSelectors", "unusedSelectors");
+
+    private static final Pattern INICIO_TITLE = Pattern.compile(".*\\b(Inicio|Home)\\b.*");
+
+    int htmlElements;
+    int paragraphs;
+    int lists;
+    int links;
+    int internalLinks;
+    // Calculados a nivel de entrega con el LinkGraph
+    int brokenLinks;
+    boolean navComplete;
+    int unreachablePages;
+    int forms;
+    int requiredFields;
+    int validatedInputs;
+    int formLabels;
+    int images;
+    int imagesWithoutAlt;
+    int brokenImages;
+    int stylesheets;
+    int viewport;
+    // Calculados con las hojas de estilo de la página (enlazadas y <style>)
+    int cssRules;
+    int mediaQueries;
+    int usedSelectors;
+    int unusedSelectors;
+    final List<String> imageSources = new ArrayList<>();
+    final List<String> linkTargets = new ArrayList<>();
+    final List<String> stylesheetLinks = new ArrayList<>();
+    final List<String> inlineStyles = new ArrayList<>();
+    int textLength;
+    boolean loremIpsum;
+    boolean inicioTitle;
+
+    private final StringBuilder bodyText = new StringBuilder();
+    private final StringBuilder titleText = new StringBuilder();
+    private String text;
+    private int bodyDepth;
+    private int formDepth;
+
+    public static PageFeatures collect(Node root) {
+        PageFeatures features = new PageFeatures();
+        NodeTraversor.traverse(features, root);
+        features.text = features.bodyText.toString().trim();
+        features.textLength = features.text.length();
+        features.loremIpsum = features.text.contains("Lorem ipsum");
+        features.inicioTitle = isInicioTitle(features.titleText);
+        return features;
+    }
+
+    static boolean isInicioTitle(CharSequence title) {
+        return INICIO_TITLE.matcher(title).matches();
+    }
+
+    public double get(String name) {
+        switch (name) {
+            case "htmlElements": return htmlElements;
+            case "paragraphs": return paragraphs;
+            case "lists": return lists;
+            case "links": return links;
+            case "internalLinks": return internalLinks;
+            case "forms": return forms;
+            case "requiredFields": return requiredFields;
+            case "validatedInputs": return validatedInputs;
+            case "formLabels": return formLabels;
+            case "images": return images;
+            case "imagesWithoutAlt": return imagesWithoutAlt;
+            case "brokenImages": return brokenImages;
+            case "stylesheets": return stylesheets;
+            case "viewport": return viewport;
+            case "textLength": return textLength;
+            case "titleInicio": return inicioTitle ? 1 : 0;
+            case "loremIpsum": return loremIpsum ? 1 : 0;
+            case "brokenLinks": return brokenLinks;
+            case "navComplete": return navComplete ? 1 : 0;
+            case "unreachablePages": return unreachablePages;
+            case "cssRules": return cssRules;
+            case "mediaQueries": return mediaQueries;
+            case "usedSelectors": return usedSelectors;
+            case "unusedSelectors": return unusedSelectors;
+            default: throw new IllegalArgumentException("Unknown page feature: " + name);
+        }
+    }
+
+    /** Texto del body con los espacios normalizados, igual que {@code doc.body().text()}. */
+    String bodyText() {
+        return text;
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+        if (node instanceof TextNode) {
+            if (bodyDepth > 0) {
+                TextNode text = (TextNode) node;
+                Node parent = text.parentNode();
+                if (parent instanceof Element && isPreformatted((Element) parent)) {
+                    bodyText.append(text.getWholeText());
+                } else {
+                    StringUtil.appendNormalisedWhitespace(bodyText, text.getWholeText(), endsWithWhitespace());
+                }
+            }
+            return;
+        }
+        if (!(node instanceof Element)) {
+            return;
+        }
+        Element element = (Element) node;
+        switch (element.normalName()) {
+            case "html" -> htmlElements++;
+            case "body" -> bodyDepth++;
+            case "title" -> titleText.append(titleText.length() == 0 ? "" : " ").append(element.text());
+            case "p" -> paragraphs++;
+            case "ul", "ol" -> lists++;
+            case "a" -> {
+                if (element.hasAttr("href")) {
+                    links++;
+                    linkTargets.add(element.attr("href"));
+                }
+            }
+            case "form" -> {
+                forms++;
+                formDepth++;
+            }
+            case "label" -> {
+                if (formDepth > 0) {
+                    formLabels++;
+                }
+            }
+            case "input", "select", "textarea" -> {
+                if (element.hasAttr("required")) {
+                    requiredFields++;
+                }
+                String type = element.attr("type");
+                if (formDepth > 0 && element.normalName().equals("input") && (type.equalsIgnoreCase("email")
+                        || type.equalsIgnoreCase("number") || type.equalsIgnoreCase("date"))) {
+                    validatedInputs++;
+                }
+            }
+            case "img" -> {
+                images++;
+                imageSources.add(element.attr("src"));
+                if (element.attr("alt").isEmpty()) {
+                    imagesWithoutAlt++;
+                }
+            }
+            case "link" -> {
+                if (element.attr("rel").equalsIgnoreCase("stylesheet")) {
+                    stylesheets++;
+                    stylesheetLinks.add(element.attr("href"));
+                }
+            }
+            case "style" -> {
+                stylesheets++;
+                inlineStyles.add(element.data());
+            }
+            case "meta" -> {
+                if (element.attr("name").equalsIgnoreCase("viewport")) {
+                    viewport++;
+                }
+            }
+            default -> {
+            }
+        }
+        // Separación entre bloques, como en Element.text()
+        if (bodyDepth > 0 && bodyText.length() > 0 && (element.isBlock() || element.normalName().equals("br"))
+                && !endsWithWhitespace()) {
+            bodyText.append(' ');
+        }
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+        if (!(node instanceof Element)) {
+            return;
+        }
+        Element element = (Element) node;
+        if (element.normalName().equals("body")) {
+            bodyDepth--;
+        } else if (element.normalName().equals("form")) {
+            formDepth--;
+        }
+        if (bodyDepth > 0 && element.isBlock() && element.nextSibling() instanceof TextNode && !endsWithWhitespace()) {
+            bodyText.append(' ');
+        }
+    }
+
+    private boolean endsWithWhitespace() {
+        return bodyText.length() > 0 && bodyText.charAt(bodyText.length() - 1) == ' ';
+    }
+
+    private static boolean isPreformatted(Element element) {
+        for (Element current = element; current != null; current = current.parent()) {
+            if (current.tag().preserveWhitespace()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
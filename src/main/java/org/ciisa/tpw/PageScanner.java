@@ -0,0 +1,396 @@
+package org.ciisa.tpw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lectura rápida de una página para reconocer qué sección de la rúbrica es, sin construir el DOM.
+ *
+ * <p>Recorre el archivo como un flujo de etiquetas y texto y completa en un {@link PageFeatures} los mismos
+ * contadores que {@link PageFeatures#collect}, salvo los que dependen del resto de la entrega (imágenes
+ * rotas, enlaces internos, navegación). Usa memoria acotada sin importar el tamaño del archivo: no guarda el
+ * texto y de los {@code href} guarda solo los primeros {@value #MAX_LINKS}, para el {@link LinkGraph}.
+ * Los valores son aproximados (no aplica las correcciones de anidamiento del parser
+ * de jsoup), así que solo se usan para clasificar; la nota sale del DOM completo.</p>
+ */
+final class PageScanner {
+    // Etiquetas que separan palabras en el texto, como los elementos de bloque en Element.text()
+    private static final Set<String> BLOCK_TAGS = Set.of(
+            "address", "article", "aside", "blockquote", "br", "dd", "div", "dl", "dt", "fieldset", "figcaption",
+            "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main", "nav",
+            "ol", "p", "pre", "section", "table", "td", "th", "tr", "ul");
+    // Etiquetas que pueden ir dentro de <head>; cualquier otra lo cierra, como hace el parser de jsoup
+    private static final Set<String> HEAD_TAGS = Set.of(
+            "html", "head", "title", "meta", "link", "style", "script", "base", "noscript", "template");
+    private static final String LOREM_IPSUM = "Lorem ipsum";
+    private static final int MAX_TAG_LENGTH = 8192;
+    private static final int MAX_TITLE_LENGTH = 1024;
+    static final int MAX_LINKS = 1000;
+
+    private final Reader reader;
+    private final PageFeatures features = new PageFeatures();
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushback = -1;
+
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder title = new StringBuilder();
+    private boolean inHead;
+    private int formDepth;
+    private boolean pendingSpace;
+    private int loremMatched;
+
+    private PageScanner(Reader reader) {
+        this.reader = reader;
+    }
+
+    static PageFeatures scan(InputStream in) throws IOException {
+        PageScanner scanner = new PageScanner(new InputStreamReader(in, StandardCharsets.UTF_8));
+        scanner.run();
+        scanner.features.inicioTitle = PageFeatures.isInicioTitle(scanner.title);
+        return scanner.features;
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '<') {
+                readMarkup();
+            } else if (c == '&') {
+                readEntity();
+            } else {
+                text((char) c);
+            }
+        }
+    }
+
+    private void readMarkup() throws IOException {
+        int c = read();
+        if (c == '!') {
+            c = read();
+            if (c == '-' && read() == '-') {
+                skipComment();
+            } else {
+                skipPast('>');
+            }
+        } else if (c == '?') {
+            skipPast('>');
+        } else if (c == '/') {
+            readTag();
+            endTag(tagName());
+        } else if (isLetter(c)) {
+            tag.append((char) c);
+            readTag();
+            startTag(tagName());
+        } else {
+            // Un '<' suelto es texto
+            text('<');
+            if (c >= 0) {
+                pushback = c;
+            }
+        }
+    }
+
+    /** Lee el resto de la etiqueta hasta el '>' que la cierra, respetando los valores entre comillas. */
+    private void readTag() throws IOException {
+        int quote = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return;
+            }
+            if (tag.length() < MAX_TAG_LENGTH) {
+                tag.append((char) c);
+            }
+        }
+    }
+
+    private String tagName() {
+        int end = 0;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') {
+            end++;
+        }
+        return tag.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private void startTag(String name) throws IOException {
+        if (inHead && !HEAD_TAGS.contains(name)) {
+            // Un <head> sin cerrar termina con el primer elemento del contenido
+            inHead = false;
+        }
+        switch (name) {
+            case "html" -> features.htmlElements++;
+            case "head" -> inHead = true;
+            case "body" -> inHead = false;
+            case "title" -> readTitle();
+            case "p" -> features.paragraphs++;
+            case "ul", "ol" -> features.lists++;
+            case "a" -> {
+                String href = attribute("href");
+                if (href != null) {
+                    features.links++;
+                    if (features.linkTargets.size() < MAX_LINKS) {
+                        features.linkTargets.add(href);
+                    }
+                }
+            }
+            case "form" -> {
+                features.forms++;
+                formDepth++;
+            }
+            case "label" -> {
+                if (formDepth > 0) {
+                    features.formLabels++;
+                }
+            }
+            case "input", "select", "textarea" -> {
+                if (attribute("required") != null) {
+                    features.requiredFields++;
+                }
+                String type = attribute("type");
+                if (formDepth > 0 && name.equals("input") && type != null && (type.equalsIgnoreCase("email")
+                        || type.equalsIgnoreCase("number") || type.equalsIgnoreCase("date"))) {
+                    features.validatedInputs++;
+                }
+            }
+            case "img" -> {
+                features.images++;
+                String alt = attribute("alt");
+                if (alt == null || alt.isEmpty()) {
+                    features.imagesWithoutAlt++;
+                }
+            }
+            case "link" -> {
+                if ("stylesheet".equalsIgnoreCase(attribute("rel"))) {
+                    features.stylesheets++;
+                }
+            }
+            case "meta" -> {
+                if ("viewport".equalsIgnoreCase(attribute("name"))) {
+                    features.viewport++;
+                }
+            }
+            case "style" -> {
+                features.stylesheets++;
+                skipRawText(name);
+            }
+            case "script" -> skipRawText(name);
+            default -> {
+            }
+        }
+        if (BLOCK_TAGS.contains(name)) {
+            space();
+        }
+        tag.setLength(0);
+    }
+
+    private void endTag(String name) {
+        if (name.equals("head")) {
+            inHead = false;
+        } else if (name.equals("form") && formDepth > 0) {
+            formDepth--;
+        }
+        if (BLOCK_TAGS.contains(name)) {
+            space();
+        }
+        tag.setLength(0);
+    }
+
+    /** Valor de un atributo de la etiqueta actual: null si no está, vacío si no tiene valor. */
+    private String attribute(String name) {
+        int i = 0;
+        int length = tag.length();
+        while (i < length && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '/') {
+            i++;
+        }
+        while (i < length) {
+            while (i < length && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '=' && tag.charAt(i) != '/') {
+                i++;
+            }
+            boolean matches = i - start == name.length() && tag.substring(start, i).equalsIgnoreCase(name);
+            while (i < length && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            String value = "";
+            if (i < length && tag.charAt(i) == '=') {
+                i++;
+                while (i < length && Character.isWhitespace(tag.charAt(i))) {
+                    i++;
+                }
+                int valueStart = i;
+                if (i < length && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                    char quote = tag.charAt(i++);
+                    valueStart = i;
+                    while (i < length && tag.charAt(i) != quote) {
+                        i++;
+                    }
+                    value = tag.substring(valueStart, i);
+                    i++;
+                } else {
+                    while (i < length && !Character.isWhitespace(tag.charAt(i))) {
+                        i++;
+                    }
+                    value = tag.substring(valueStart, i);
+                }
+            }
+            if (matches) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private void readTitle() throws IOException {
+        tag.setLength(0);
+        StringBuilder text = new StringBuilder();
+        String end = "</title";
+        int matched = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            matched = Character.toLowerCase(c) == end.charAt(matched) ? matched + 1 : (c == '<' ? 1 : 0);
+            if (matched == end.length()) {
+                skipPast('>');
+                break;
+            }
+            if (text.length() < MAX_TITLE_LENGTH) {
+                text.append((char) c);
+            }
+        }
+        // Se descartan los caracteres de "</title" que quedaron al final
+        String value = text.substring(0, Math.max(0, text.length() - (matched == end.length() ? end.length() - 1 : 0)));
+        title.append(title.length() == 0 ? "" : " ").append(value.trim());
+    }
+
+    /** Salta el contenido de script y style, que no se interpreta como HTML. */
+    private void skipRawText(String name) throws IOException {
+        String end = "</" + name;
+        int matched = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            matched = Character.toLowerCase(c) == end.charAt(matched) ? matched + 1 : (c == '<' ? 1 : 0);
+            if (matched == end.length()) {
+                skipPast('>');
+                return;
+            }
+        }
+    }
+
+    private void skipComment() throws IOException {
+        int dashes = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == end) {
+                return;
+            }
+        }
+    }
+
+    /** Una entidad cuenta como un solo carácter del texto ({@code &nbsp;} como espacio). */
+    private void readEntity() throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = read()) >= 0 && name.length() < 10 && (isLetter(c) || Character.isDigit(c) || c == '#')) {
+            name.append((char) c);
+        }
+        if (c == ';' && name.length() > 0) {
+            if (name.toString().equals("nbsp")) {
+                space();
+            } else {
+                text('?');
+            }
+            return;
+        }
+        text('&');
+        for (int i = 0; i < name.length(); i++) {
+            text(name.charAt(i));
+        }
+        if (c >= 0) {
+            pushback = c;
+        }
+    }
+
+    private void text(char c) {
+        if (inHead) {
+            // Texto fuera de <title> también cierra el <head>; los espacios entre etiquetas no
+            if (Character.isWhitespace(c)) {
+                return;
+            }
+            inHead = false;
+        }
+        if (Character.isWhitespace(c)) {
+            space();
+            return;
+        }
+        if (pendingSpace) {
+            pendingSpace = false;
+            features.textLength++;
+            matchLorem(' ');
+        }
+        features.textLength++;
+        matchLorem(c);
+    }
+
+    /** Los espacios seguidos cuentan como uno y no se cuentan al principio ni al final, como en text(). */
+    private void space() {
+        if (!inHead && features.textLength > 0) {
+            pendingSpace = true;
+        }
+    }
+
+    private void matchLorem(char c) {
+        if (features.loremIpsum) {
+            return;
+        }
+        loremMatched = c == LOREM_IPSUM.charAt(loremMatched) ? loremMatched + 1 : (c == 'L' ? 1 : 0);
+        if (loremMatched == LOREM_IPSUM.length()) {
+            features.loremIpsum = true;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback >= 0) {
+            int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,57 @@
+package org.ciisa.tpw;
+
+import com.github.junrar.Archive;
+import com.github.junrar.exception.RarException;
+import com.github.junrar.rarfile.FileHeader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Extrae RAR dentro de la JVM usando junrar (no soporta RAR5).
+ */
+public class RarArchiveExtractor implements ArchiveExtractor {
+    private final ExtractionLimits limits;
+
+    public RarArchiveExtractor() {
+        this(ExtractionLimits.fromSystemProperties());
+    }
+
+    public RarArchiveExtractor(ExtractionLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public String name() {
+        return "junrar";
+    }
+
+    @Override
+    public boolean supports(ArchiveType type) {
+        return type == ArchiveType.RAR;
+    }
+
+    @Override
+    public void extract(File rarFile, File outputDir) throws IOException {
+        ExtractionLimits.Session session = limits.start(rarFile, outputDir);
+        try (Archive archive = new Archive(rarFile)) {
+            for (FileHeader header : archive) {
+                File entryDestination = session.target(header.getFileName());
+                if (entryDestination == null) {
+                    continue;
+                }
+                if (header.isDirectory()) {
+                    Files.createDirectories(entryDestination.toPath());
+                } else {
+                    try (OutputStream out = session.open(entryDestination)) {
+                        archive.extractFile(header, out);
+                    }
+                }
+            }
+        } catch (RarException e) {
+            throw new IOException("junrar failed on " + rarFile.getName() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché persistente de notas, indexada por el hash SHA-256 del archivo comprimido y la versión de la rúbrica
+ * ({@link Rubric#version()}, más los límites que cambian las notas: {@link HTMLValidator#scoringSettings()}).
+ * Permite volver a correr la corrección y solo procesar las entregas nuevas o modificadas.
+ *
+ * <p>El archivo es un log de líneas separadas por tabulador: cada nota calculada se agrega al final
+ * apenas está lista (así una corrida interrumpida no pierde trabajo) y al cerrar se compacta,
+ * descartando entradas de otras versiones de la rúbrica, entradas sin uso reciente y el exceso
+ * sobre el máximo de entradas.</p>
+ */
+public class ResultCache {
+    private static final int FIELDS = 9;
+
+    private static class Entry {
+        final String rubricVersion;
+        final Score score;
+        volatile long lastUsed;
+
+        Entry(String rubricVersion, Score score, long lastUsed) {
+            this.rubricVersion = rubricVersion;
+            this.score = score;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final File file;
+    private final String rubricVersion;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter log;
+
+    public ResultCache(File file, String rubricVersion, int maxAgeDays, int maxEntries) throws IOException {
+        this.file = file;
+        this.rubricVersion = rubricVersion;
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(maxAgeDays);
+        this.maxEntries = maxEntries;
+        load();
+        log = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** Hash del contenido del archivo comprimido. */
+    public static String hash(File archive) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(archive.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Devuelve una copia de la nota guardada para el hash, o null si no está o es de otra rúbrica. */
+    public Score get(String archiveHash) {
+        Entry entry = entries.get(archiveHash);
+        if (entry == null || !entry.rubricVersion.equals(rubricVersion)) {
+            return null;
+        }
+        entry.lastUsed = System.currentTimeMillis();
+        return copy(entry.score);
+    }
+
+    public void put(String archiveHash, Score score) throws IOException {
+        Entry entry = new Entry(rubricVersion, copy(score), System.currentTimeMillis());
+        entries.put(archiveHash, entry);
+        synchronized (this) {
+            log.write(format(archiveHash, entry));
+            log.flush();
+        }
+    }
+
+    /** Compacta el archivo: reescribe solo las entradas vigentes y lo reemplaza de forma atómica. */
+    public synchronized void close() throws IOException {
+        log.close();
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        List<Map.Entry<String, Entry>> live = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().rubricVersion.equals(rubricVersion) && entry.getValue().lastUsed >= oldest) {
+                live.add(entry);
+            }
+        }
+        live.sort(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().lastUsed).reversed());
+        File compacted = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : live.subList(0, Math.min(maxEntries, live.size()))) {
+                writer.write(format(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != FIELDS) {
+                    continue; // Línea truncada por una corrida interrumpida
+                }
+                try {
+                    Score score = new Score();
+                    score.notaInicio = Integer.parseInt(fields[3]);
+                    score.notaImagenes = Integer.parseInt(fields[4]);
+                    score.notaForm = Integer.parseInt(fields[5]);
+                    score.notaHtml = Integer.parseInt(fields[6]);
+                    score.notaFinal = Integer.parseInt(fields[7]);
+                    score.comentarios = unescape(fields[8]);
+                    // Las líneas posteriores reemplazan a las anteriores con el mismo hash
+                    entries.put(fields[0], new Entry(fields[1], score, Long.parseLong(fields[2])));
+                } catch (NumberFormatException e) {
+                    // Entrada corrupta: se descarta y desaparece en la próxima compactación
+                }
+            }
+        }
+    }
+
+    private static String format(String archiveHash, Entry entry) {
+        Score score = entry.score;
+        return archiveHash + '\t' + entry.rubricVersion + '\t' + entry.lastUsed + '\t'
+                + score.notaInicio + '\t' + score.notaImagenes + '\t' + score.notaForm + '\t'
+                + score.notaHtml + '\t' + score.notaFinal + '\t' + escape(score.comentarios) + '\n';
+    }
+
+    private static Score copy(Score source) {
+        Score score = new Score();
+        score.notaInicio = source.notaInicio;
+        score.notaImagenes = source.notaImagenes;
+        score.notaForm = source.notaForm;
+        score.notaHtml = source.notaHtml;
+        score.notaFinal = source.notaFinal;
+        score.comentarios = source.comentarios;
+        return score;
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Últimos resultados de cada directorio de alumno, ordenados por nombre.
+ * Permite reemplazar los resultados de un solo alumno y regenerar el archivo de salida
+ * sin volver a corregir a los demás.
+ */
+public class ResultStore {
+    private final Map<String, List<GradingResult>> results = new TreeMap<>();
+    private final File output;
+
+    public ResultStore(String outputPath) {
+        this.output = new File(outputPath).getAbsoluteFile();
+    }
+
+    public synchronized void update(String dirName, List<GradingResult> directoryResults) {
+        if (directoryResults.isEmpty()) {
+            results.remove(dirName);
+        } else {
+            results.put(dirName, directoryResults);
+        }
+    }
+
+    /**
+     * Escribe todos los resultados en un archivo temporal y lo mueve sobre la salida,
+     * así quien lea el archivo nunca ve una versión a medio escribir.
+     */
+    public synchronized void write() throws IOException {
+        File temporary = new File(output.getParentFile(), ".tmp-" + output.getName());
+        try (ResultWriter writer = ResultWriter.open(temporary.getPath())) {
+            writer.writeHeader();
+            for (List<GradingResult> directoryResults : results.values()) {
+                for (GradingResult result : directoryResults) {
+                    writer.write(result);
+                }
+            }
+        }
+        Files.move(temporary.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,23 @@
+package org.ciisa.tpw;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino de los resultados de la corrección. Las implementaciones son seguras para
+ * ser usadas desde varios hilos a la vez.
+ */
+public interface ResultWriter extends Closeable {
+
+    void writeHeader() throws IOException;
+
+    void write(GradingResult result) throws IOException;
+
+    /** Elige el formato según la extensión del archivo: .jsonl para JSON Lines, CSV en otro caso. */
+    static ResultWriter open(String outputPath) throws IOException {
+        if (outputPath.endsWith(".jsonl")) {
+            return new JsonLinesWriter(outputPath);
+        }
+        return new CSVWriter(outputPath);
+    }
+}
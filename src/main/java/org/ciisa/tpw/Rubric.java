@@ -0,0 +1,146 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rúbrica declarativa: cómo reconocer cada página y qué puntaje y comentario le corresponde.
+ * Se carga desde {@code rubric.txt} (o el archivo indicado en {@code -Dcorrector.rubric}) y sus
+ * condiciones se compilan una sola vez.
+ */
+public class Rubric {
+    // Incrementar cuando cambie el cálculo de PageFeatures, para invalidar las notas en caché
+    private static final String ENGINE_VERSION = "2";
+    private static final Set<String> SECTIONS = Set.of("inicio", "galeria", "form");
+
+    private static Rubric defaultRubric;
+
+    /** Nivel de logro: puntaje, condición y comentario (puede ser null). */
+    public static class Tier {
+        final int score;
+        final RubricExpression condition;
+        final String comment;
+
+        Tier(int score, RubricExpression condition, String comment) {
+            this.score = score;
+            this.condition = condition;
+            this.comment = comment;
+        }
+    }
+
+    /** Página de la entrega, identificada por la sección de la nota que le corresponde. */
+    public static class Page {
+        final String section;
+        final RubricExpression classifier;
+        final List<Tier> tiers = new ArrayList<>();
+
+        Page(String section, RubricExpression classifier) {
+            this.section = section;
+            this.classifier = classifier;
+        }
+
+        /** Primer nivel cuya condición se cumple, o null si ninguno. */
+        Tier grade(PageFeatures features) {
+            for (Tier tier : tiers) {
+                if (tier.condition.test(features)) {
+                    return tier;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final List<Page> pages;
+    private final String version;
+
+    private Rubric(List<Page> pages, String version) {
+        this.pages = Collections.unmodifiableList(pages);
+        this.version = version;
+    }
+
+    /** Rúbrica de la corrida, cargada una sola vez. */
+    public static synchronized Rubric defaultRubric() throws IOException {
+        if (defaultRubric == null) {
+            String path = System.getProperty("corrector.rubric");
+            if (path != null) {
+                defaultRubric = parse(Files.readString(new File(path).toPath(), StandardCharsets.UTF_8));
+            } else {
+                try (InputStream in = Rubric.class.getResourceAsStream("/rubric.txt")) {
+                    if (in == null) {
+                        throw new IOException("Default rubric.txt not found in the classpath");
+                    }
+                    defaultRubric = parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return defaultRubric;
+    }
+
+    public static Rubric parse(String text) throws IOException {
+        List<Page> pages = new ArrayList<>();
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (line.startsWith("page ")) {
+                    int colon = line.indexOf(':');
+                    String section = line.substring(5, colon).trim();
+                    if (!SECTIONS.contains(section)) {
+                        throw new IllegalArgumentException("Unknown section '" + section + "', expected one of " + SECTIONS);
+                    }
+                    pages.add(new Page(section, RubricExpression.compile(line.substring(colon + 1))));
+                } else {
+                    if (pages.isEmpty()) {
+                        throw new IllegalArgumentException("Tier defined before any page");
+                    }
+                    int colon = line.indexOf(':');
+                    int bar = line.indexOf(" | ");
+                    String condition = bar < 0 ? line.substring(colon + 1) : line.substring(colon + 1, bar);
+                    String comment = bar < 0 ? null : line.substring(bar + 3).trim();
+                    int score = Integer.parseInt(line.substring(0, colon).trim());
+                    pages.get(pages.size() - 1).tiers.add(new Tier(score, RubricExpression.compile(condition), comment));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid rubric at line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new Rubric(pages, ENGINE_VERSION + "-" + sha256(text).substring(0, 16));
+    }
+
+    /** Primera página cuya condición de reconocimiento se cumple, o null si no se reconoce. */
+    public Page classify(PageFeatures features) {
+        for (Page page : pages) {
+            if (page.classifier.test(features)) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    /** Cambia con cualquier cambio del archivo de rúbrica; se usa como clave de {@link ResultCache}. */
+    public String version() {
+        return version;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
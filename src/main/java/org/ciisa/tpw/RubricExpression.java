@@ -0,0 +1,145 @@
+package org.ciisa.tpw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Condición de la rúbrica compilada a un árbol de evaluación. Soporta números, variables de
+ * {@link PageFeatures}, {@code true}/{@code false}, comparaciones ({@code == != < <= > >=}),
+ * {@code !}, {@code &&}, {@code ||} y paréntesis. Un valor distinto de 0 se considera verdadero.
+ */
+interface RubricExpression {
+
+    double evaluate(PageFeatures features);
+
+    default boolean test(PageFeatures features) {
+        return evaluate(features) != 0;
+    }
+
+    static RubricExpression compile(String source) {
+        Compiler compiler = new Compiler(source);
+        RubricExpression expression = compiler.or();
+        if (compiler.position < compiler.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + compiler.tokens.get(compiler.position) + "' in: " + source);
+        }
+        return expression;
+    }
+
+    /** Parser de descenso recursivo; solo se usa al cargar la rúbrica. */
+    final class Compiler {
+        private final String source;
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        private Compiler(String source) {
+            this.source = source;
+            tokenize();
+        }
+
+        private RubricExpression or() {
+            RubricExpression left = and();
+            while (accept("||")) {
+                RubricExpression l = left, r = and();
+                left = f -> l.test(f) || r.test(f) ? 1 : 0;
+            }
+            return left;
+        }
+
+        private RubricExpression and() {
+            RubricExpression left = unary();
+            while (accept("&&")) {
+                RubricExpression l = left, r = unary();
+                left = f -> l.test(f) && r.test(f) ? 1 : 0;
+            }
+            return left;
+        }
+
+        private RubricExpression unary() {
+            if (accept("!")) {
+                RubricExpression operand = unary();
+                return f -> operand.test(f) ? 0 : 1;
+            }
+            return comparison();
+        }
+
+        private RubricExpression comparison() {
+            RubricExpression left = primary();
+            String operator = position < tokens.size() ? tokens.get(position) : "";
+            switch (operator) {
+                case "==", "!=", "<", "<=", ">", ">=" -> position++;
+                default -> {
+                    return left;
+                }
+            }
+            RubricExpression right = primary();
+            return switch (operator) {
+                case "==" -> f -> left.evaluate(f) == right.evaluate(f) ? 1 : 0;
+                case "!=" -> f -> left.evaluate(f) != right.evaluate(f) ? 1 : 0;
+                case "<" -> f -> left.evaluate(f) < right.evaluate(f) ? 1 : 0;
+                case "<=" -> f -> left.evaluate(f) <= right.evaluate(f) ? 1 : 0;
+                case ">" -> f -> left.evaluate(f) > right.evaluate(f) ? 1 : 0;
+                default -> f -> left.evaluate(f) >= right.evaluate(f) ? 1 : 0;
+            };
+        }
+
+        private RubricExpression primary() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of condition: " + source);
+            }
+            String token = tokens.get(position++);
+            if (token.equals("(")) {
+                RubricExpression inner = or();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')' in: " + source);
+                }
+                return inner;
+            }
+            if (token.equals("true")) {
+                return f -> 1;
+            }
+            if (token.equals("false")) {
+                return f -> 0;
+            }
+            if (Character.isDigit(token.charAt(0))) {
+                double value = Double.parseDouble(token);
+                return f -> value;
+            }
+            if (!PageFeatures.NAMES.contains(token)) {
+                throw new IllegalArgumentException("Unknown variable '" + token + "' in: " + source);
+            }
+            return f -> f.get(token);
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isLetterOrDigit(c) || c == '.') {
+                    int start = i;
+                    while (i < source.length() && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(source.substring(start, i));
+                } else if (i + 1 < source.length() && List.of("==", "!=", "<=", ">=", "&&", "||").contains(source.substring(i, i + 2))) {
+                    tokens.add(source.substring(i, i + 2));
+                    i += 2;
+                } else if ("()<>!".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' in: " + source);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.ciisa.tpw;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.SevenZipNativeInitializationException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+/**
+ * Extrae 7z con la librería nativa de 7-Zip-JBinding cargada dentro de la JVM.
+ * Si la librería nativa no existe para la plataforma actual el extractor queda deshabilitado.
+ */
+public class SevenZipArchiveExtractor implements ArchiveExtractor {
+    private static Boolean available;
+    private final ExtractionLimits limits;
+
+    public SevenZipArchiveExtractor() {
+        this(ExtractionLimits.fromSystemProperties());
+    }
+
+    public SevenZipArchiveExtractor(ExtractionLimits limits) {
+        this.limits = limits;
+    }
+
+    private static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                SevenZip.initSevenZipFromPlatformJAR();
+                available = true;
+                System.out.println("Extracting 7z archives in the JVM with 7-Zip-JBinding "
+                        + SevenZip.getSevenZipJBindingVersion() + " (" + SevenZip.getUsedPlatform() + ")");
+            } catch (SevenZipNativeInitializationException | LinkageError e) {
+                System.out.println("7-Zip-JBinding not available on this platform, 7z archives will use the external 7z binary: "
+                        + e.getMessage());
+                available = false;
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public String name() {
+        return "7-Zip-JBinding";
+    }
+
+    @Override
+    public boolean supports(ArchiveType type) {
+        return type == ArchiveType.SEVEN_ZIP && isAvailable();
+    }
+
+    @Override
+    public void extract(File archiveFile, File outputDir) throws IOException {
+        ExtractionLimits.Session session = limits.start(archiveFile, outputDir);
+        try (RandomAccessFile file = new RandomAccessFile(archiveFile, "r");
+             IInArchive archive = SevenZip.openInArchive(null, new RandomAccessFileInStream(file))) {
+            for (ISimpleInArchiveItem item : archive.getSimpleInterface().getArchiveItems()) {
+                File entryDestination = session.target(item.getPath());
+                if (entryDestination == null) {
+                    continue;
+                }
+                if (item.isFolder()) {
+                    Files.createDirectories(entryDestination.toPath());
+                    continue;
+                }
+                try (OutputStream out = session.open(entryDestination)) {
+                    ExtractOperationResult result = item.extractSlow(data -> {
+                        try {
+                            out.write(data);
+                        } catch (IOException e) {
+                            throw new SevenZipException("Unable to write " + entryDestination, e);
+                        }
+                        return data.length;
+                    });
+                    if (result != ExtractOperationResult.OK) {
+                        throw new IOException("7-Zip-JBinding failed on " + item.getPath() + ": " + result);
+                    }
+                }
+            }
+        }
+    }
+}
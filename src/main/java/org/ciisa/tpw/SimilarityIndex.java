@@ -0,0 +1,214 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Índice MinHash-LSH para encontrar entregas casi idénticas sin comparar todos los pares.
+ *
+ * <p>Cada entrega se resume en una firma de {@value #SIGNATURE_SIZE} enteros (~0,5 KB), así que varios
+ * miles de entregas de distintos semestres caben en pocos MB. La firma se divide en {@value #BANDS}
+ * bandas; dos entregas son candidatas si coinciden en alguna banda completa, y solo los candidatos
+ * se comparan estimando su similitud de Jaccard. Con estos parámetros los pares con similitud
+ * mayor a ~0,6 se detectan casi siempre.</p>
+ *
+ * <p>El índice se guarda en disco para comparar contra entregas de semestres anteriores; cada entrada
+ * lleva el hash del archivo comprimido para reutilizar la firma cuando la nota sale de la caché.</p>
+ */
+public class SimilarityIndex {
+    static final int BANDS = 20;
+    static final int ROWS = 6;
+    static final int SIGNATURE_SIZE = BANDS * ROWS;
+    private static final long[] SEEDS = new SplittableRandom(0x5EED).longs(SIGNATURE_SIZE).toArray();
+
+    private static class Entry {
+        final String term;
+        final String id;
+        final String archiveHash;
+        final int[] signature;
+        boolean current;
+
+        Entry(String term, String id, String archiveHash, int[] signature) {
+            this.term = term;
+            this.id = id;
+            this.archiveHash = archiveHash;
+            this.signature = signature;
+        }
+
+        String key() {
+            return term + "\t" + id;
+        }
+    }
+
+    /** Par de entregas con su similitud estimada. */
+    public static class SimilarPair {
+        final String first;
+        final String second;
+        final double similarity;
+
+        SimilarPair(String first, String second, double similarity) {
+            this.first = first;
+            this.second = second;
+            this.similarity = similarity;
+        }
+    }
+
+    private final File file;
+    private final String term;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public SimilarityIndex(File file, String term) throws IOException {
+        this.file = file;
+        this.term = term;
+        if (file != null && file.exists()) {
+            load();
+        }
+    }
+
+    public synchronized void add(String id, String archiveHash, SubmissionFingerprint fingerprint) {
+        Entry entry = new Entry(term, id, archiveHash, signature(fingerprint));
+        entry.current = true;
+        entries.put(entry.key(), entry);
+    }
+
+    /**
+     * Marca como parte de la corrida actual una entrega cuya firma ya estaba guardada.
+     * Devuelve false si no hay firma para ese archivo y hay que volver a calcularla.
+     */
+    public synchronized boolean reuse(String id, String archiveHash) {
+        Entry entry = entries.get(term + "\t" + id);
+        if (entry == null || archiveHash == null || !archiveHash.equals(entry.archiveHash)) {
+            return false;
+        }
+        entry.current = true;
+        return true;
+    }
+
+    /** Pares con similitud estimada mayor o igual al umbral en los que participa al menos una entrega de esta corrida. */
+    public synchronized List<SimilarPair> findSimilar(double threshold) {
+        List<Entry> all = new ArrayList<>(entries.values());
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int index = 0; index < all.size(); index++) {
+            int[] signature = all.get(index).signature;
+            for (int band = 0; band < BANDS; band++) {
+                long key = band;
+                for (int row = 0; row < ROWS; row++) {
+                    key = SubmissionFingerprint.mix(key * 31 + signature[band * ROWS + row]);
+                }
+                buckets.computeIfAbsent(key, k -> new ArrayList<>(2)).add(index);
+            }
+        }
+
+        Set<Long> compared = new HashSet<>();
+        List<SimilarPair> pairs = new ArrayList<>();
+        for (List<Integer> bucket : buckets.values()) {
+            for (int i = 0; i < bucket.size(); i++) {
+                for (int j = i + 1; j < bucket.size(); j++) {
+                    Entry first = all.get(bucket.get(i));
+                    Entry second = all.get(bucket.get(j));
+                    if (!(first.current || second.current) || !compared.add((long) bucket.get(i) << 32 | bucket.get(j))) {
+                        continue;
+                    }
+                    double similarity = estimateJaccard(first.signature, second.signature);
+                    if (similarity >= threshold) {
+                        pairs.add(new SimilarPair(first.key(), second.key(), similarity));
+                    }
+                }
+            }
+        }
+        pairs.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return pairs;
+    }
+
+    public void writeReport(String path, double threshold) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(new File(path).toPath(), StandardCharsets.UTF_8)) {
+            writer.write("semestre A,entrega A,semestre B,entrega B,similitud\n");
+            for (SimilarPair pair : findSimilar(threshold)) {
+                writer.write(csv(pair.first.replace('\t', ',')) + "," + csv(pair.second.replace('\t', ','))
+                        + "," + String.format("%.2f", pair.similarity).replace(',', '.') + "\n");
+            }
+        }
+    }
+
+    /** Guarda todas las firmas, reemplazando el archivo de forma atómica. */
+    public synchronized void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SIGNATURE_SIZE * Integer.BYTES);
+            for (Entry entry : entries.values()) {
+                buffer.clear();
+                buffer.asIntBuffer().put(entry.signature);
+                writer.write(entry.key() + "\t" + entry.archiveHash + "\t"
+                        + Base64.getEncoder().encodeToString(buffer.array()) + "\n");
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 4) {
+                    continue;
+                }
+                byte[] bytes = Base64.getDecoder().decode(fields[3]);
+                if (bytes.length != SIGNATURE_SIZE * Integer.BYTES) {
+                    continue; // Firma de otra configuración del índice
+                }
+                int[] signature = new int[SIGNATURE_SIZE];
+                ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+                Entry entry = new Entry(fields[0], fields[1], fields[2], signature);
+                entries.put(entry.key(), entry);
+            }
+        }
+    }
+
+    private static int[] signature(SubmissionFingerprint fingerprint) {
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            long min = Long.MAX_VALUE;
+            for (long shingle : fingerprint.shingles) {
+                min = Math.min(min, SubmissionFingerprint.mix(shingle ^ SEEDS[i]));
+            }
+            signature[i] = (int) min;
+        }
+        return signature;
+    }
+
+    private static double estimateJaccard(int[] first, int[] second) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    private static String csv(String value) {
+        // Solo la parte de la entrega puede traer comas; el semestre queda antes de la primera
+        int comma = value.indexOf(',');
+        String entry = value.substring(comma + 1);
+        return value.substring(0, comma + 1) + "\"" + entry.replace("\"", "\"\"") + "\"";
+    }
+}
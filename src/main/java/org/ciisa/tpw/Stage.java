@@ -0,0 +1,15 @@
+package org.ciisa.tpw;
+
+/**
+ * Etapas de la corrección de una entrega que se miden por separado.
+ */
+public enum Stage {
+    CLEANUP,
+    EXTRACTION,
+    HTML_PARSE,
+    CLASSIFICATION,
+    GALLERY_ASSETS,
+    CSS,
+    SIMILARITY,
+    CSV_WRITE
+}
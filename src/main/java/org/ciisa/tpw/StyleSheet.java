@@ -0,0 +1,213 @@
+package org.ciisa.tpw;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Selector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Hoja de estilos ya parseada, reducida a lo que usa la rúbrica: cantidad de reglas, media queries y
+ * selectores. Las declaraciones no se guardan. Es inmutable, así que la misma instancia se comparte entre
+ * todas las entregas que usan el mismo CSS (ver {@link StyleSheetCache}).
+ *
+ * <p>El parser es deliberadamente simple: salta comentarios y strings, entra en los bloques {@code @media},
+ * {@code @supports}, {@code @layer} y {@code @container}, y salta el contenido de cualquier otro bloque
+ * ({@code @font-face}, {@code @keyframes}, declaraciones). Un CSS mal escrito no lo hace fallar: se cuenta
+ * lo que se alcanza a reconocer.</p>
+ */
+public class StyleSheet {
+    // Selectores distintos que se guardan por hoja; un framework completo tiene miles y no aportan a la nota
+    static final int MAX_SELECTORS = Integer.getInteger("corrector.css.maxSelectors", 1000);
+    private static final Set<String> GROUPING_RULES = Set.of("media", "supports", "layer", "container");
+    // Condiciones que dependen del tamaño de la pantalla; "@media print" o "@media screen" solos no cuentan
+    private static final Pattern VIEWPORT_CONDITION = Pattern.compile("(?i)width|height|orientation|aspect-ratio");
+    // Pseudo-clases que no dependen de la interacción; el resto (:hover, :focus, ::before...) jsoup no las evalúa
+    private static final Set<String> STATIC_PSEUDO = Set.of("not", "has", "is", "nth-child", "nth-last-child",
+            "nth-of-type", "nth-last-of-type", "first-child", "last-child", "only-child", "first-of-type",
+            "last-of-type", "only-of-type", "empty", "root");
+
+    static final StyleSheet EMPTY = new StyleSheet(0, 0, List.of());
+
+    // Reglas de estilo (selector { ... }), incluidas las de dentro de un @media
+    final int rules;
+    // Bloques @media con una condición sobre el tamaño de la pantalla
+    final int mediaQueries;
+    final List<String> selectors;
+
+    private StyleSheet(int rules, int mediaQueries, List<String> selectors) {
+        this.rules = rules;
+        this.mediaQueries = mediaQueries;
+        this.selectors = selectors;
+    }
+
+    public static StyleSheet parse(String css) {
+        int rules = 0;
+        int mediaQueries = 0;
+        Set<String> selectors = new LinkedHashSet<>();
+        StringBuilder prelude = new StringBuilder();
+        // Mayor que 0 mientras se salta el contenido de un bloque de declaraciones o de un @ que no agrupa reglas
+        int skipDepth = 0;
+        int length = css.length();
+        for (int i = 0; i < length; i++) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 1;
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                int end = endOfString(css, i);
+                if (skipDepth == 0) {
+                    prelude.append(css, i, end);
+                }
+                i = end - 1;
+                continue;
+            }
+            if (skipDepth > 0) {
+                if (c == '{') {
+                    skipDepth++;
+                } else if (c == '}') {
+                    skipDepth--;
+                }
+                continue;
+            }
+            switch (c) {
+                case '{' -> {
+                    String head = prelude.toString().trim();
+                    prelude.setLength(0);
+                    if (head.startsWith("@")) {
+                        String name = atRuleName(head);
+                        if (name.equals("media") && VIEWPORT_CONDITION.matcher(head).find()) {
+                            mediaQueries++;
+                        }
+                        // Las reglas dentro de un @media se leen igual que las de nivel superior
+                        if (!GROUPING_RULES.contains(name)) {
+                            skipDepth = 1;
+                        }
+                    } else {
+                        rules++;
+                        addSelectors(head, selectors);
+                        skipDepth = 1;
+                    }
+                }
+                // Cierre de un @media, o fin de un @import / @charset
+                case '}', ';' -> prelude.setLength(0);
+                default -> prelude.append(c);
+            }
+        }
+        return new StyleSheet(rules, mediaQueries, Collections.unmodifiableList(new ArrayList<>(selectors)));
+    }
+
+    /**
+     * Verdadero si el selector aplica a algún elemento del documento. Los estados (:hover, :focus...) y
+     * pseudo-elementos (::before...) se ignoran, así {@code nav a:hover} cuenta si la página tiene un
+     * {@code nav a}. Los selectores que jsoup no entiende no se consideran usados.
+     */
+    static boolean matches(String selector, Element root) {
+        String query = staticSelector(selector);
+        try {
+            return Selector.selectFirst(query, root) != null;
+        } catch (Selector.SelectorParseException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Saca del selector los estados y pseudo-elementos; un compuesto que queda vacío pasa a ser {@code *}. */
+    static String staticSelector(String selector) {
+        StringBuilder query = new StringBuilder();
+        int length = selector.length();
+        // Dentro de [href^="http:"] los ':' no son pseudo-clases
+        int attributeDepth = 0;
+        for (int i = 0; i < length; i++) {
+            char c = selector.charAt(i);
+            if (c == '[') {
+                attributeDepth++;
+            } else if (c == ']') {
+                attributeDepth--;
+            }
+            if (c != ':' || attributeDepth > 0) {
+                query.append(c);
+                continue;
+            }
+            int start = i;
+            int end = i + 1;
+            if (end < length && selector.charAt(end) == ':') {
+                end++;
+            }
+            int nameStart = end;
+            while (end < length && (Character.isLetterOrDigit(selector.charAt(end)) || selector.charAt(end) == '-')) {
+                end++;
+            }
+            String name = selector.substring(nameStart, end).toLowerCase(Locale.ROOT);
+            if (end < length && selector.charAt(end) == '(') {
+                for (int depth = 0; end < length; end++) {
+                    if (selector.charAt(end) == '(') {
+                        depth++;
+                    } else if (selector.charAt(end) == ')' && --depth == 0) {
+                        end++;
+                        break;
+                    }
+                }
+            }
+            if (nameStart == start + 1 && STATIC_PSEUDO.contains(name)) {
+                query.append(selector, start, end);
+            } else if ((query.length() == 0 || isCombinator(query.charAt(query.length() - 1)))
+                    && (end == length || isCombinator(selector.charAt(end)) || selector.charAt(end) == ':')) {
+                query.append('*');
+            }
+            i = end - 1;
+        }
+        return query.toString().trim();
+    }
+
+    private static boolean isCombinator(char c) {
+        return Character.isWhitespace(c) || c == '>' || c == '+' || c == '~';
+    }
+
+    private static void addSelectors(String selectorList, Set<String> selectors) {
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= selectorList.length() && selectors.size() < MAX_SELECTORS; i++) {
+            char c = i < selectorList.length() ? selectorList.charAt(i) : ',';
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth <= 0) {
+                String selector = selectorList.substring(start, i).trim().replaceAll("\\s+", " ");
+                if (!selector.isEmpty()) {
+                    selectors.add(selector);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    private static String atRuleName(String head) {
+        int end = 1;
+        while (end < head.length() && (Character.isLetterOrDigit(head.charAt(end)) || head.charAt(end) == '-')) {
+            end++;
+        }
+        return head.substring(1, end).toLowerCase(Locale.ROOT);
+    }
+
+    /** Posición siguiente al cierre del string que empieza en start; los saltos con '\' no lo cierran. */
+    private static int endOfString(String css, int start) {
+        char quote = css.charAt(start);
+        for (int i = start + 1; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            }
+        }
+        return css.length();
+    }
+}
@@ -0,0 +1,71 @@
+package org.ciisa.tpw;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hojas de estilo ya parseadas, compartidas por todas las entregas de la corrida y buscadas por el SHA-256
+ * de su contenido: muchos alumnos usan el mismo CSS de plantilla (o el mismo framework) y así se parsea una
+ * sola vez. Es un LRU con una cantidad fija de entradas, para que la memoria no crezca con el tamaño del lote.
+ */
+public class StyleSheetCache {
+    private static final StyleSheetCache SHARED = new StyleSheetCache(Integer.getInteger("corrector.css.cacheEntries", 256));
+
+    private final Map<String, StyleSheet> sheets;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StyleSheetCache(int maxEntries) {
+        this.sheets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StyleSheet> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** Caché de la corrida, compartida entre los hilos que corrigen en paralelo. */
+    public static StyleSheetCache shared() {
+        return SHARED;
+    }
+
+    public StyleSheet get(byte[] content) {
+        String key = sha256(content);
+        synchronized (this) {
+            StyleSheet sheet = sheets.get(key);
+            if (sheet != null) {
+                hits.increment();
+                return sheet;
+            }
+        }
+        // Se parsea fuera del lock: si dos hilos llegan con el mismo CSS, los dos resultados son iguales
+        misses.increment();
+        StyleSheet sheet = StyleSheet.parse(new String(content, StandardCharsets.UTF_8));
+        synchronized (this) {
+            sheets.put(key, sheet);
+        }
+        return sheet;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
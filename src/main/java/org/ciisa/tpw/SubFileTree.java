@@ -0,0 +1,40 @@
+package org.ciisa.tpw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista de una carpeta dentro de otro {@link FileTree}.
+ */
+class SubFileTree implements FileTree {
+    private final FileTree parent;
+    private final String prefix;
+
+    SubFileTree(FileTree parent, String prefix) {
+        this.parent = parent;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public List<String> paths() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String path : parent.paths()) {
+            if (path.startsWith(prefix)) {
+                paths.add(path.substring(prefix.length()));
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        return parent.open(prefix + path);
+    }
+
+    @Override
+    public long size(String path) throws IOException {
+        return parent.size(prefix + path);
+    }
+}
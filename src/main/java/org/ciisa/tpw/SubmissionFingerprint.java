@@ -0,0 +1,101 @@
+package org.ciisa.tpw;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Conjunto de shingles de una entrega, usado para detectar entregas copiadas:
+ * secuencias de 5 palabras del texto, secuencias de 4 etiquetas del DOM y el hash del contenido
+ * de cada imagen usada. Cada shingle se guarda como un hash de 64 bits.
+ */
+public class SubmissionFingerprint {
+    private static final int TEXT_SHINGLE = 5;
+    private static final int DOM_SHINGLE = 4;
+
+    final Set<Long> shingles = new HashSet<>();
+
+    public static SubmissionFingerprint of(Collection<Document> documents, AssetIndex assets, FileTree files) throws IOException {
+        SubmissionFingerprint fingerprint = new SubmissionFingerprint();
+        Set<String> images = new HashSet<>();
+        for (Document document : documents) {
+            String text = PageFeatures.collect(document).bodyText().toLowerCase(Locale.ROOT);
+            // \W solo reconoce letras ASCII: "diseño" o "página" quedarían partidas en dos palabras
+            fingerprint.addShingles('t', text.split("[^\\p{L}\\p{N}]+"), TEXT_SHINGLE);
+
+            List<String> tags = new ArrayList<>();
+            for (Element element : document.getAllElements()) {
+                tags.add(element.normalName());
+                if (element.normalName().equals("img")) {
+                    AssetIndex.Asset asset = assets.findImage(element.attr("src"));
+                    if (asset != null) {
+                        images.add(asset.path);
+                    }
+                }
+            }
+            fingerprint.addShingles('d', tags.toArray(new String[0]), DOM_SHINGLE);
+        }
+        for (String image : images) {
+            fingerprint.shingles.add(hashContent(files, image));
+        }
+        return fingerprint;
+    }
+
+    public boolean isEmpty() {
+        return shingles.isEmpty();
+    }
+
+    private void addShingles(char kind, String[] tokens, int size) {
+        if (tokens.length == 0) {
+            return;
+        }
+        for (int start = 0; start + size <= Math.max(tokens.length, size); start++) {
+            long hash = mix(kind);
+            for (int i = start; i < Math.min(start + size, tokens.length); i++) {
+                hash = mix(hash ^ hash64(tokens[i]));
+            }
+            shingles.add(hash);
+        }
+    }
+
+    private static long hashContent(FileTree files, String path) throws IOException {
+        long hash = mix('i');
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = files.open(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    hash = (hash ^ (buffer[i] & 0xff)) * 0x100000001b3L;
+                }
+            }
+        }
+        return mix(hash);
+    }
+
+    /** FNV-1a de 64 bits. */
+    static long hash64(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** Finalizador de MurmurHash3: reparte los bits del valor en todo el resultado. */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
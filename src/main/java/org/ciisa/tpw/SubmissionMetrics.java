@@ -0,0 +1,38 @@
+package org.ciisa.tpw;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tiempos y contadores de la corrección de un archivo comprimido.
+ * Cada instancia la usa un solo trabajo a la vez; {@link GradingMetrics} la agrega al terminar.
+ */
+public class SubmissionMetrics {
+    final String name;
+    final Map<Stage, Long> stageNanos = new EnumMap<>(Stage.class);
+    long totalNanos;
+    long bytesExtracted;
+    int filesParsed;
+    int fallbacks;
+    // Intentos repetidos por fallas transitorias o por superar el tiempo máximo
+    int retries;
+    boolean cached;
+
+    public SubmissionMetrics(String name) {
+        this.name = name;
+    }
+
+    /** Instancia descartable, para usar el validador sin medir. */
+    static SubmissionMetrics none() {
+        return new SubmissionMetrics("");
+    }
+
+    /** Suma el tiempo transcurrido desde startNanos a la etapa. */
+    void record(Stage stage, long startNanos) {
+        stageNanos.merge(stage, System.nanoTime() - startNanos, Long::sum);
+    }
+
+    long nanos(Stage stage) {
+        return stageNanos.getOrDefault(stage, 0L);
+    }
+}
@@ -0,0 +1,14 @@
+package org.ciisa.tpw;
+
+import java.io.IOException;
+
+/**
+ * La corrección de una entrega superó el tiempo máximo y se interrumpió.
+ */
+public class SubmissionTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public SubmissionTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,195 @@
+package org.ciisa.tpw;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo vigilancia: queda corriendo sobre el directorio raíz y corrige cada entrega apenas llega.
+ *
+ * <p>Cuando aparece, cambia o se borra un archivo en un directorio de alumno, el directorio queda pendiente
+ * hasta que pasa el tiempo de espera sin eventos nuevos y el tamaño y la fecha de sus archivos dejan de
+ * cambiar (así no se corrige una subida a medio copiar). Solo ese alumno se vuelve a corregir y el archivo
+ * de salida se regenera desde {@link ResultStore}. Si se borra el directorio del alumno, sus filas se quitan.</p>
+ */
+public class SubmissionWatcher {
+    private static final long POLL_MILLIS = 500;
+
+    private final File rootDir;
+    private final Grader grader;
+    private final ResultStore store;
+    private final long debounceMillis;
+    private final Map<WatchKey, File> watchedDirectories = new HashMap<>();
+    private final Map<File, PendingDirectory> pending = new HashMap<>();
+    // Correcciones en curso; un directorio que cambia mientras se corrige espera a que termine
+    private final Map<Future<GradedDirectory>, File> grading = new HashMap<>();
+
+    private static class PendingDirectory {
+        long lastEventMillis;
+        String snapshot = "";
+    }
+
+    public SubmissionWatcher(File rootDir, Grader grader, ResultStore store, long debounceMillis) {
+        this.rootDir = rootDir;
+        this.grader = grader;
+        this.store = store;
+        this.debounceMillis = debounceMillis;
+    }
+
+    public void run(ExecutorService executor) throws IOException, InterruptedException {
+        CompletionService<GradedDirectory> completion = new ExecutorCompletionService<>(executor);
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            register(watchService, rootDir);
+            File[] directories = rootDir.listFiles(File::isDirectory);
+            if (directories != null) {
+                for (File dir : directories) {
+                    register(watchService, dir);
+                    markPending(dir);
+                }
+            }
+            System.out.println("Watching " + rootDir.getAbsolutePath() + " for new submissions");
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(watchService, key);
+                }
+                for (File dir : settledDirectories()) {
+                    grading.put(completion.submit(() -> new GradedDirectory(dir, grader.gradeDirectory(dir))), dir);
+                }
+                // Solo este hilo actualiza el almacén y escribe la salida
+                Future<GradedDirectory> done;
+                boolean changed = false;
+                while ((done = completion.poll()) != null) {
+                    grading.remove(done);
+                    GradedDirectory graded = get(done);
+                    if (graded != null) {
+                        // Un directorio borrado mientras se corregía no vuelve a la salida
+                        store.update(graded.dir.getName(), graded.dir.isDirectory() ? graded.results : List.of());
+                        System.out.println("Graded " + graded.dir.getName());
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    store.write();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Cierre normal
+        } finally {
+            System.out.println("Stopping watch mode with " + grading.size() + " submissions still grading");
+        }
+    }
+
+    private void handleEvents(WatchService watchService, WatchKey key) throws IOException {
+        File dir = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                continue;
+            }
+            File changed = dir.toPath().resolve((Path) event.context()).toFile();
+            if (dir.equals(rootDir)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    // Se borró (o renombró) un directorio de alumno: sale de la salida
+                    pending.remove(changed);
+                    store.update(changed.getName(), List.of());
+                    store.write();
+                } else if (changed.isDirectory()) {
+                    // Nuevo directorio de alumno
+                    register(watchService, changed);
+                    markPending(changed);
+                }
+            } else {
+                // Cualquier archivo cuenta: el formato se reconoce por el contenido, no por la extensión
+                markPending(dir);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void register(WatchService watchService, File dir) throws IOException {
+        WatchKey key = dir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirectories.put(key, dir);
+    }
+
+    private void markPending(File dir) {
+        pending.computeIfAbsent(dir, d -> new PendingDirectory()).lastEventMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Directorios sin eventos durante el tiempo de espera y cuyos archivos no cambiaron desde la última revisión.
+     * Los que todavía se están corrigiendo siguen pendientes: si se mandaran de nuevo, la corrección vieja
+     * podría terminar después y pisar la nota nueva en el almacén.
+     */
+    private List<File> settledDirectories() {
+        List<File> settled = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<File, PendingDirectory>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, PendingDirectory> entry = iterator.next();
+            PendingDirectory state = entry.getValue();
+            if (now - state.lastEventMillis < debounceMillis || grading.containsValue(entry.getKey())) {
+                continue;
+            }
+            String snapshot = snapshot(entry.getKey());
+            if (snapshot.equals(state.snapshot)) {
+                settled.add(entry.getKey());
+                iterator.remove();
+            } else {
+                state.snapshot = snapshot;
+                state.lastEventMillis = now;
+            }
+        }
+        return settled;
+    }
+
+    private static String snapshot(File dir) {
+        StringBuilder snapshot = new StringBuilder();
+        File[] files = dir.listFiles(File::isFile);
+        if (files != null) {
+            for (File file : files) {
+                snapshot.append(file.getName()).append(':').append(file.length()).append(':').append(file.lastModified()).append(';');
+            }
+        }
+        return snapshot.toString();
+    }
+
+    private static GradedDirectory get(Future<GradedDirectory> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            System.out.println("Error grading submission: " + e.getCause());
+            return null;
+        }
+    }
+
+    private static class GradedDirectory {
+        final File dir;
+        final List<GradingResult> results;
+
+        GradedDirectory(File dir, List<GradingResult> results) {
+            this.dir = dir;
+            this.results = results;
+        }
+    }
+}
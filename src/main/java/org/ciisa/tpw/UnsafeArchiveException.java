@@ -0,0 +1,15 @@
+package org.ciisa.tpw;
+
+import java.io.IOException;
+
+/**
+ * El archivo comprimido viola un límite de {@link ExtractionLimits}. No se reintenta con otro extractor,
+ * porque el problema es el archivo y no la herramienta.
+ */
+public class UnsafeArchiveException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public UnsafeArchiveException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,254 @@
+package org.ciisa.tpw;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cola de trabajo en un directorio compartido entre el coordinador y los procesos trabajadores.
+ *
+ * <p>Cada unidad de trabajo es un archivo con una lista de directorios de alumno y pasa por los
+ * subdirectorios {@code pending/ → claimed/ → done/}. Un trabajador toma una unidad moviéndola de forma
+ * atómica a {@code claimed/}, así dos trabajadores nunca toman la misma, y mientras la corrige actualiza
+ * su fecha de modificación. Los resultados se escriben en {@code done/} con otro movimiento atómico, de modo
+ * que una unidad terminada nunca se pierde aunque el trabajador muera después. Las unidades que fallan
+ * demasiadas veces terminan en {@code failed/}.</p>
+ */
+public class WorkQueue {
+    private static final String UNIT_EXTENSION = ".unit";
+    private static final String RESULTS_EXTENSION = ".tsv";
+    private static final String ATTEMPTS_PREFIX = "# attempts=";
+
+    /** Unidad tomada por un trabajador. */
+    public static class Unit {
+        final String name;
+        final int attempts;
+        final List<File> directories;
+
+        Unit(String name, int attempts, List<File> directories) {
+            this.name = name;
+            this.attempts = attempts;
+            this.directories = directories;
+        }
+    }
+
+    private final File pending;
+    private final File claimed;
+    private final File done;
+    private final File failed;
+
+    public WorkQueue(File root) throws IOException {
+        this.pending = new File(root, "pending");
+        this.claimed = new File(root, "claimed");
+        this.done = new File(root, "done");
+        this.failed = new File(root, "failed");
+        for (File dir : new File[]{pending, claimed, done, failed}) {
+            Files.createDirectories(dir.toPath());
+        }
+    }
+
+    /** Verdadero si la cola ya tiene unidades de una corrida anterior, terminada o no. */
+    public boolean isInitialized() {
+        return count(pending) + count(claimed) + count(done) + count(failed) > 0;
+    }
+
+    /** Reparte los directorios, en orden, en unidades de a lo más unitSize directorios. */
+    public void partition(File[] directories, int unitSize) throws IOException {
+        for (int start = 0, unit = 0; start < directories.length; start += unitSize, unit++) {
+            List<File> directoriesInUnit = Arrays.asList(directories).subList(start, Math.min(start + unitSize, directories.length));
+            writeUnit(new File(pending, String.format("unit-%05d", unit) + UNIT_EXTENSION), 0, directoriesInUnit);
+        }
+    }
+
+    /** Toma la siguiente unidad pendiente, o devuelve null si no queda ninguna. */
+    public Unit claim() throws IOException {
+        for (String name : names(pending, UNIT_EXTENSION)) {
+            File source = new File(pending, name + UNIT_EXTENSION);
+            File target = new File(claimed, name + UNIT_EXTENSION);
+            try {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                continue; // Otro trabajador la tomó primero
+            }
+            heartbeat(name);
+            return readUnit(name, target);
+        }
+        return null;
+    }
+
+    /** Marca la unidad como viva, para que el coordinador no la dé por abandonada. */
+    public void heartbeat(String name) throws IOException {
+        try {
+            Files.setLastModifiedTime(new File(claimed, name + UNIT_EXTENSION).toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // El coordinador ya la devolvió a pending; los resultados igual se aceptan si llegan
+        }
+    }
+
+    /** Guarda los resultados de la unidad y la saca de claimed. */
+    public void complete(String name, List<GradingResult> results) throws IOException {
+        File temporary = new File(done, "." + name + RESULTS_EXTENSION + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            for (GradingResult result : results) {
+                Score score = result.score;
+                writer.write(ResultCache.escape(result.dirName) + '\t' + ResultCache.escape(result.archiveName) + '\t'
+                        + score.notaInicio + '\t' + score.notaImagenes + '\t' + score.notaForm + '\t'
+                        + score.notaHtml + '\t' + score.notaFinal + '\t' + ResultCache.escape(score.comentarios) + '\t'
+                        + ResultCache.escape(result.error) + '\n');
+            }
+        }
+        move(temporary, new File(done, name + RESULTS_EXTENSION));
+        Files.deleteIfExists(new File(claimed, name + UNIT_EXTENSION).toPath());
+        Files.deleteIfExists(new File(pending, name + UNIT_EXTENSION).toPath());
+        // El coordinador pudo darla por perdida mientras el trabajador seguía: valen los resultados
+        Files.deleteIfExists(new File(failed, name + UNIT_EXTENSION).toPath());
+    }
+
+    /**
+     * Devuelve a pending las unidades sin novedades hace más de timeoutMillis (el trabajador murió o se colgó),
+     * o las manda a failed si ya agotaron los intentos. Devuelve la cantidad de unidades recuperadas.
+     */
+    public int requeueStale(long timeoutMillis, int maxAttempts) throws IOException {
+        int requeued = 0;
+        long oldest = System.currentTimeMillis() - timeoutMillis;
+        for (String name : names(claimed, UNIT_EXTENSION)) {
+            File file = new File(claimed, name + UNIT_EXTENSION);
+            if (file.lastModified() == 0 || file.lastModified() >= oldest) {
+                continue;
+            }
+            Unit unit;
+            try {
+                unit = readUnit(name, file);
+            } catch (NoSuchFileException e) {
+                continue; // Terminó mientras se revisaba
+            }
+            if (new File(done, name + RESULTS_EXTENSION).exists()) {
+                Files.deleteIfExists(file.toPath());
+                continue;
+            }
+            int attempts = unit.attempts + 1;
+            File target = new File(attempts >= maxAttempts ? failed : pending, name + UNIT_EXTENSION);
+            System.out.println("Unit " + name + " timed out (attempt " + attempts + " of " + maxAttempts + ")"
+                    + (attempts >= maxAttempts ? ", giving up" : ", retrying"));
+            File temporary = new File(target.getParentFile(), "." + name + UNIT_EXTENSION + ".tmp");
+            writeUnit(temporary, attempts, unit.directories);
+            move(temporary, target);
+            Files.deleteIfExists(file.toPath());
+            requeued++;
+        }
+        return requeued;
+    }
+
+    public int pendingUnits() {
+        return count(pending);
+    }
+
+    public int claimedUnits() {
+        return count(claimed);
+    }
+
+    /** Directorios de las unidades que agotaron sus intentos y no terminaron de todos modos. */
+    public List<File> failedDirectories() throws IOException {
+        List<File> directories = new ArrayList<>();
+        for (String name : names(failed, UNIT_EXTENSION)) {
+            if (new File(done, name + RESULTS_EXTENSION).exists()) {
+                continue; // Terminó después de darla por perdida
+            }
+            try {
+                directories.addAll(readUnit(name, new File(failed, name + UNIT_EXTENSION)).directories);
+            } catch (NoSuchFileException e) {
+                // Terminó mientras se revisaba
+            }
+        }
+        return directories;
+    }
+
+    /** Lee los resultados de todas las unidades terminadas y los agrega al almacén. */
+    public void collect(ResultStore store) throws IOException {
+        for (String name : names(done, RESULTS_EXTENSION)) {
+            List<GradingResult> unitResults = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(new File(done, name + RESULTS_EXTENSION).toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    Score score = new Score();
+                    score.notaInicio = Integer.parseInt(fields[2]);
+                    score.notaImagenes = Integer.parseInt(fields[3]);
+                    score.notaForm = Integer.parseInt(fields[4]);
+                    score.notaHtml = Integer.parseInt(fields[5]);
+                    score.notaFinal = Integer.parseInt(fields[6]);
+                    score.comentarios = ResultCache.unescape(fields[7]);
+                    String error = fields[8].isEmpty() ? null : ResultCache.unescape(fields[8]);
+                    unitResults.add(new GradingResult(ResultCache.unescape(fields[0]), ResultCache.unescape(fields[1]),
+                            score, SubmissionMetrics.none(), error));
+                }
+            }
+            // Un directorio puede tener varios comprimidos: se agrupan antes de pasarlos al almacén
+            List<GradingResult> directoryResults = new ArrayList<>();
+            for (GradingResult result : unitResults) {
+                if (!directoryResults.isEmpty() && !directoryResults.get(0).dirName.equals(result.dirName)) {
+                    store.update(directoryResults.get(0).dirName, directoryResults);
+                    directoryResults = new ArrayList<>();
+                }
+                directoryResults.add(result);
+            }
+            if (!directoryResults.isEmpty()) {
+                store.update(directoryResults.get(0).dirName, directoryResults);
+            }
+        }
+    }
+
+    private Unit readUnit(String name, File file) throws IOException {
+        int attempts = 0;
+        List<File> directories = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith(ATTEMPTS_PREFIX)) {
+                attempts = Integer.parseInt(line.substring(ATTEMPTS_PREFIX.length()));
+            } else if (!line.isEmpty()) {
+                directories.add(new File(line));
+            }
+        }
+        return new Unit(name, attempts, directories);
+    }
+
+    private static void writeUnit(File file, int attempts, List<File> directories) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(ATTEMPTS_PREFIX + attempts);
+        for (File directory : directories) {
+            lines.add(directory.getAbsolutePath());
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Nombres de las unidades de un subdirectorio, sin extensión y en orden. */
+    private static List<String> names(File dir, String extension) {
+        String[] files = dir.list((parent, name) -> !name.startsWith(".") && name.endsWith(extension));
+        List<String> names = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            for (String file : files) {
+                names.add(file.substring(0, file.length() - extension.length()));
+            }
+        }
+        return names;
+    }
+
+    private static int count(File dir) {
+        String[] files = dir.list((parent, name) -> !name.startsWith("."));
+        return files == null ? 0 : files.length;
+    }
+}
@@ -0,0 +1,57 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+
+/**
+ * Extrae ZIP dentro de la JVM usando Apache Commons Compress.
+ */
+public class ZipArchiveExtractor implements ArchiveExtractor {
+    private final ExtractionLimits limits;
+
+    public ZipArchiveExtractor() {
+        this(ExtractionLimits.fromSystemProperties());
+    }
+
+    public ZipArchiveExtractor(ExtractionLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public String name() {
+        return "commons-compress";
+    }
+
+    @Override
+    public boolean supports(ArchiveType type) {
+        return type == ArchiveType.ZIP;
+    }
+
+    @Override
+    public void extract(File zipFile, File outputDir) throws IOException {
+        ExtractionLimits.Session session = limits.start(zipFile, outputDir);
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                File entryDestination = session.target(entry.getName());
+                if (entryDestination == null) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryDestination.toPath());
+                } else {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        session.copy(in, entryDestination);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.ciisa.tpw;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link FileTree} que lee las entradas directamente desde un ZIP, sin extraerlo a disco.
+ * Solo se mantiene en memoria el índice de nombres; el contenido se lee bajo demanda.
+ *
+ * <p>Los bytes descomprimidos se cuentan contra los mismos límites de tamaño y tasa de compresión que la
+ * extracción a disco, sin confiar en los tamaños declarados en el ZIP. Una entrada leída varias veces
+ * (pre-lectura, parseo, huella) cuenta una sola vez, hasta donde se haya leído.</p>
+ */
+public class ZipFileTree implements FileTree {
+    private final ZipFile zip;
+    private final Map<String, ZipArchiveEntry> entries = new LinkedHashMap<>();
+    private final ExtractionLimits.Session session;
+    // Bytes leídos de cada entrada, como máximo entre todas sus lecturas
+    private final Map<String, Long> bytesRead = new HashMap<>();
+    private UnsafeArchiveException violation;
+
+    public ZipFileTree(File zipFile) throws IOException {
+        this(zipFile, ExtractionLimits.fromSystemProperties());
+    }
+
+    /**
+     * Aplica los mismos filtros que la extracción a disco: se ignoran las carpetas y videos de
+     * {@link ExtractionLimits#isSkipped} y se rechaza el ZIP si tiene demasiadas entradas.
+     */
+    public ZipFileTree(File zipFile, ExtractionLimits limits) throws IOException {
+        this.session = limits.start(zipFile);
+        this.zip = new ZipFile(zipFile);
+        Enumeration<ZipArchiveEntry> zipEntries = zip.getEntries();
+        while (zipEntries.hasMoreElements()) {
+            ZipArchiveEntry entry = zipEntries.nextElement();
+            if (!entry.isDirectory() && !ExtractionLimits.isSkipped(entry.getName())) {
+                // Algunos compresores de Windows guardan las rutas con '\'
+                entries.put(entry.getName().replace('\\', '/'), entry);
+            }
+            if (entries.size() > limits.maxEntries) {
+                zip.close();
+                throw new UnsafeArchiveException(zipFile.getName() + " has more than " + limits.maxEntries + " entries");
+            }
+        }
+    }
+
+    @Override
+    public List<String> paths() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        ZipArchiveEntry entry = entries.get(path);
+        if (entry == null) {
+            throw new FileNotFoundException(path);
+        }
+        verify();
+        return new FilterInputStream(zip.getInputStream(entry)) {
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    advance(path, ++position);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] data, int offset, int length) throws IOException {
+                int read = super.read(data, offset, length);
+                if (read > 0) {
+                    position += read;
+                    advance(path, position);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                if (skipped > 0) {
+                    position += skipped;
+                    advance(path, position);
+                }
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Falla si alguna lectura superó los límites. El validador convierte los errores de lectura en comentarios,
+     * así que quien usa el árbol lo revisa al terminar para no dar por buena una entrega que se cortó.
+     */
+    public synchronized void verify() throws UnsafeArchiveException {
+        if (violation != null) {
+            throw violation;
+        }
+    }
+
+    private synchronized void advance(String path, long position) throws IOException {
+        verify();
+        long previous = bytesRead.getOrDefault(path, 0L);
+        if (position > previous) {
+            bytesRead.put(path, position);
+            try {
+                session.count(position - previous);
+            } catch (UnsafeArchiveException e) {
+                violation = e;
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long size(String path) {
+        ZipArchiveEntry entry = entries.get(path);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}